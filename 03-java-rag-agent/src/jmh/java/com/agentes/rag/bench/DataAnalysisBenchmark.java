@@ -0,0 +1,95 @@
+// ============================================================
+// bench/DataAnalysisBenchmark.java — Tool analyzeData
+// ============================================================
+// Mide el tool de análisis en sus dos modos:
+//   - values: arrays grandes (lo que el LLM le pasaría como
+//     argumento JSON ya deserializado)
+//   - file:   un CSV sintético con el mismo número de filas,
+//     parseado y agrupado por una columna de texto
+// ============================================================
+
+package com.agentes.rag.bench;
+
+import com.agentes.rag.analytics.TabularAnalyzer;
+import com.agentes.rag.observability.RagMetrics;
+import com.agentes.rag.tools.DataAnalysisTool;
+import com.agentes.rag.tools.DataAnalysisTool.AnalysisRequest;
+import com.agentes.rag.tools.DataAnalysisTool.AnalysisResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataAnalysisBenchmark {
+
+    private static final String[] REGIONS = {"norte", "sur", "este", "oeste", "centro"};
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    private Path directory;
+    private Function<AnalysisRequest, AnalysisResponse> analyzeData;
+    private AnalysisRequest valuesRequest;
+    private AnalysisRequest fileRequest;
+
+    @Setup
+    public void setup() throws IOException {
+        var random = new SplittableRandom(11);
+        double[] values = new double[size];
+        directory = Files.createTempDirectory("rag-bench-analytics");
+        try (BufferedWriter csv = Files.newBufferedWriter(directory.resolve("ventas.csv"))) {
+            csv.write("region,monto,unidades\n");
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextGaussian() * 100 + 500;
+                csv.write(REGIONS[random.nextInt(REGIONS.length)] + ","
+                        + String.format(Locale.ROOT, "%.2f", values[i]) + "," + random.nextInt(1, 50) + "\n");
+            }
+        }
+
+        var analyzer = new TabularAnalyzer(directory.toString(), Integer.MAX_VALUE, 50,
+                new RagMetrics(new SimpleMeterRegistry()));
+        analyzeData = new DataAnalysisTool(analyzer).analyzeData();
+        valuesRequest = new AnalysisRequest(values, "benchmark");
+        fileRequest = new AnalysisRequest(null, "benchmark", "ventas.csv", "monto", "region");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("ventas.csv"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public AnalysisResponse analyzeData() {
+        return analyzeData.apply(valuesRequest);
+    }
+
+    @Benchmark
+    public AnalysisResponse analyzeCsvGroupBy() {
+        return analyzeData.apply(fileRequest);
+    }
+}
@@ -0,0 +1,78 @@
+// ============================================================
+// bench/FakeEmbeddingModel.java — Embeddings deterministas sin red
+// ============================================================
+// Feature hashing: cada palabra suma ±1 en una dimensión
+// elegida por su hash y el vector se normaliza. Textos con
+// palabras en común dan similitud coseno alta, así que las
+// búsquedas encuentran vecinos reales, pero sin HTTP ni modelo:
+// los benchmarks miden el código del proyecto, no al proveedor.
+// ============================================================
+
+package com.agentes.rag.bench;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FakeEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+
+    public FakeEmbeddingModel(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>();
+        for (String text : request.getInstructions()) {
+            embeddings.add(new Embedding(vector(text), embeddings.size()));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return vector(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    private float[] vector(String text) {
+        float[] vector = new float[dimensions];
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                int hash = mix(text.substring(start, i).hashCode());
+                vector[Math.floorMod(hash, dimensions)] += (hash & 0x40000000) == 0 ? 1 : -1;
+                start = -1;
+            }
+        }
+
+        double norm = 0;
+        for (float v : vector) norm += v * v;
+        float inv = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0;
+        for (int d = 0; d < dimensions; d++) vector[d] *= inv;
+        return vector;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+}
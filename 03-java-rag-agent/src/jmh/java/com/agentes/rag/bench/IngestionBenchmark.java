@@ -0,0 +1,82 @@
+// ============================================================
+// bench/IngestionBenchmark.java — Throughput de ingestión
+// ============================================================
+// Mide el paso INGEST del pipeline RAG:
+//   - split:          solo TokenTextSplitter (chunking)
+//   - ingestDocument: Tika + chunking + dedup + embeddings (fake) + store
+//
+// Parametrizado por tamaño del documento en palabras y por modo
+// de deduplicación (off = sin MinHash, para medir su costo).
+// ============================================================
+
+package com.agentes.rag.bench;
+
+import com.agentes.rag.observability.RagMetrics;
+import com.agentes.rag.rag.DocumentIngestionService;
+import com.agentes.rag.rag.NearDuplicateDetector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionBenchmark {
+
+    @Param({"2000", "20000"})
+    int documentWords;
+
+    @Param({"off", "collapse"})
+    String dedup;
+
+    private List<Document> documents;
+    private byte[] documentBytes;
+    private DocumentIngestionService ingestionService;
+    private final RagMetrics metrics = new RagMetrics(new SimpleMeterRegistry());
+
+    @Setup
+    public void setup() {
+        String text = new SyntheticCorpus(7).text(documentWords);
+        documents = List.of(new Document(text));
+        documentBytes = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Vector store nuevo por invocación para que no crezca durante la medición */
+    @Setup(Level.Invocation)
+    public void freshStore() {
+        ingestionService = new DocumentIngestionService(
+                new SimpleVectorStore(new FakeEmbeddingModel(384)), 800, 200, "./documents",
+                new NearDuplicateDetector(dedup, 0.9, 128, 3, 100_000), metrics);
+    }
+
+    @Benchmark
+    public List<Document> split() {
+        return new TokenTextSplitter(800, 200, 5, 10000, true).apply(documents);
+    }
+
+    @Benchmark
+    public DocumentIngestionService.IngestionResult ingestDocument() {
+        return ingestionService.ingestDocument(new ByteArrayResource(documentBytes), "bench.txt");
+    }
+}
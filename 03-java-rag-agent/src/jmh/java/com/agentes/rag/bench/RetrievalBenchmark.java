@@ -0,0 +1,129 @@
+// ============================================================
+// bench/RetrievalBenchmark.java — Búsqueda vectorial y contexto
+// ============================================================
+// Mide el paso RETRIEVE del pipeline RAG:
+//   - vectorSearch:    similaritySearch sobre el vector store
+//   - searchAndFormat: búsqueda + armado del contexto del prompt
+//   - searchBatch:     64 consultas juntas (matricial con compact,
+//                      una por una con simple)
+//   - searchWhileIngesting: 3 hilos buscando mientras otro agrega
+//                      y borra lotes de 512 chunks (la latencia de
+//                      búsqueda no debería crecer con compact)
+//
+// Parametrizado por tamaño de corpus, dimensiones del embedding
+// y tipo de vector store (simple = SimpleVectorStore, compact =
+// CompactVectorStore).
+// ============================================================
+
+package com.agentes.rag.bench;
+
+import com.agentes.rag.observability.RagMetrics;
+import com.agentes.rag.rag.RetrievalService;
+import com.agentes.rag.store.CompactVectorStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RetrievalBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    int corpusSize;
+
+    @Param({"384", "768"})
+    int dimensions;
+
+    @Param({"simple", "compact"})
+    String store;
+
+    private VectorStore vectorStore;
+    private RetrievalService retrievalService;
+    private List<String> queries;
+    private List<String> batch;
+    private List<Document> ingestBatch;
+    private List<String> ingestIds;
+    private int next;
+
+    @Setup
+    public void setup() {
+        var corpus = new SyntheticCorpus(42);
+        queries = corpus.topics(Math.max(1, corpusSize / 10), 120);
+        List<Document> documents = corpus.documents(queries, corpusSize);
+
+        var embeddingModel = new FakeEmbeddingModel(dimensions);
+        vectorStore = "compact".equals(store)
+                ? new CompactVectorStore(embeddingModel, 64, 32 * 1024, 1)
+                : new SimpleVectorStore(embeddingModel);
+        vectorStore.add(documents);
+        retrievalService = new RetrievalService(vectorStore, embeddingModel, 64,
+                new RagMetrics(new SimpleMeterRegistry()));
+        batch = queries.subList(0, Math.min(64, queries.size()));
+        ingestBatch = new SyntheticCorpus(7).documents(queries, 512);
+        ingestIds = ingestBatch.stream().map(Document::getId).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (vectorStore instanceof CompactVectorStore compact) compact.close();
+    }
+
+    @Benchmark
+    public List<Document> vectorSearch() {
+        return vectorStore.similaritySearch(SearchRequest.query(nextQuery()).withTopK(5));
+    }
+
+    @Benchmark
+    public String searchAndFormat() {
+        return retrievalService.searchAndFormat(nextQuery(), 5);
+    }
+
+    @Benchmark
+    public List<List<Document>> searchBatch() {
+        return retrievalService.searchBatch(batch, 5, 0.0);
+    }
+
+    @Benchmark
+    @Group("searchWhileIngesting")
+    @GroupThreads(3)
+    public List<Document> search() {
+        return vectorSearch();
+    }
+
+    @Benchmark
+    @Group("searchWhileIngesting")
+    @GroupThreads(1)
+    public void ingest() {
+        vectorStore.add(ingestBatch);
+        vectorStore.delete(ingestIds);
+    }
+
+    private String nextQuery() {
+        String query = queries.get(next);
+        next = (next + 1) % queries.size();
+        return query;
+    }
+}
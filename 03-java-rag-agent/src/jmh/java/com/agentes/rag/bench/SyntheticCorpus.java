@@ -0,0 +1,86 @@
+// ============================================================
+// bench/SyntheticCorpus.java — Corpus sintético determinista
+// ============================================================
+// Genera documentos reproducibles (misma semilla → mismo texto)
+// para que los benchmarks comparen siempre el mismo trabajo.
+//
+// Los documentos se agrupan en "temas": cada documento es el
+// párrafo base de su tema con algunas palabras cambiadas, así
+// una consulta con el texto del tema tiene vecinos cercanos
+// reales (como pasa con versiones de un mismo manual).
+// ============================================================
+
+package com.agentes.rag.bench;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public final class SyntheticCorpus {
+
+    private static final int VOCABULARY_SIZE = 5_000;
+    private static final int DOCS_PER_TOPIC = 10;
+
+    private final SplittableRandom random;
+    private final String[] vocabulary;
+
+    public SyntheticCorpus(long seed) {
+        this.random = new SplittableRandom(seed);
+        this.vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = word();
+        }
+    }
+
+    /** Texto de N palabras del vocabulario */
+    public String text(int words) {
+        StringBuilder sb = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(i % 15 == 0 ? ". " : " ");
+            sb.append(vocabulary[random.nextInt(VOCABULARY_SIZE)]);
+        }
+        return sb.append('.').toString();
+    }
+
+    /** Párrafos base, uno por tema */
+    public List<String> topics(int count, int wordsPerTopic) {
+        List<String> topics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            topics.add(text(wordsPerTopic));
+        }
+        return topics;
+    }
+
+    /** Documentos: variaciones (~10% de palabras cambiadas) de cada tema */
+    public List<Document> documents(List<String> topics, int count) {
+        List<Document> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String topic = topics.get((i / DOCS_PER_TOPIC) % topics.size());
+            documents.add(new Document(mutate(topic, 0.1),
+                    Map.of("source", "doc-" + (i % 97) + ".txt", "path", "/bench/doc-" + (i % 97) + ".txt")));
+        }
+        return documents;
+    }
+
+    private String mutate(String text, double ratio) {
+        String[] words = text.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            if (random.nextDouble() < ratio) {
+                words[i] = vocabulary[random.nextInt(VOCABULARY_SIZE)];
+            }
+        }
+        return String.join(" ", words);
+    }
+
+    private String word() {
+        int length = 3 + random.nextInt(8);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,239 @@
+// ============================================================
+// loadtest/LoadGenerator.java — Generador de carga
+// ============================================================
+// Dos modos:
+//
+//   - closed-loop: N workers (virtual threads) envían requests
+//     en bucle; cada uno espera la respuesta antes del siguiente.
+//     Si el servidor se frena, también se frena la carga y los
+//     requests que no se llegaron a enviar no suman latencia
+//     (coordinated omission): los percentiles salen optimistas.
+//   - open-loop (rate > 0): un request cada 1/rate segundos, haya
+//     terminado o no el anterior. La latencia se mide desde el
+//     instante programado, así la cola que arma un servidor lento
+//     aparece en p99.
+//
+// Tras un warm-up (que no se mide) reporta:
+//
+//   - throughput (respuestas OK terminadas dentro de la ventana
+//     medida, por segundo) y errores
+//   - latencia end-to-end p50 / p90 / p99 / max
+//   - desglose por etapa a partir del campo "timings" de la
+//     respuesta (router, retrieval, llm, tools)
+// ============================================================
+
+package com.agentes.rag.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class LoadGenerator {
+
+    public record Settings(
+            String targetUrl,       // ej: http://localhost:8080/api/chat
+            int concurrency,        // workers del modo closed-loop
+            double ratePerSecond,   // > 0: open-loop a tasa fija (concurrency no se usa)
+            Duration warmup,
+            Duration duration,
+            List<String> queries
+    ) {
+        String mode() {
+            return ratePerSecond > 0
+                    ? String.format("open-loop, %.1f req/s", ratePerSecond)
+                    : "closed-loop, " + concurrency + " workers";
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, List<Double>> stageMillis = new TreeMap<>();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong completedInWindow = new AtomicLong();
+
+    public Report run(Settings settings) throws InterruptedException {
+        long start = System.nanoTime();
+        long warmupEnd = start + settings.warmup().toNanos();
+        long end = warmupEnd + settings.duration().toNanos();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (settings.ratePerSecond() > 0) {
+                schedule(settings, workers, start, warmupEnd, end);
+            } else {
+                for (int w = 0; w < settings.concurrency(); w++) {
+                    int worker = w;
+                    workers.submit(() -> loop(settings, worker, warmupEnd, end));
+                }
+            }
+            workers.shutdown();
+            workers.awaitTermination(settings.warmup().plus(settings.duration()).toSeconds() + 120, TimeUnit.SECONDS);
+        }
+
+        return report(settings);
+    }
+
+    /** Closed-loop: el worker envía el siguiente request cuando recibe la respuesta */
+    private void loop(Settings settings, int worker, long warmupEnd, long end) {
+        int i = worker;
+        while (System.nanoTime() < end) {
+            String query = settings.queries().get(i++ % settings.queries().size());
+            try {
+                send(settings, query, System.nanoTime(), warmupEnd, end);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /** Open-loop: un request por tick de 1/rate, cada uno en su propio virtual thread */
+    private void schedule(Settings settings, ExecutorService workers, long start, long warmupEnd, long end) {
+        double intervalNanos = 1e9 / settings.ratePerSecond();
+        for (long tick = 0; ; tick++) {
+            long scheduled = start + (long) (tick * intervalNanos);
+            if (scheduled >= end) return;
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.currentThread().isInterrupted()) return;
+            }
+            String query = settings.queries().get((int) (tick % settings.queries().size()));
+            workers.submit(() -> {
+                send(settings, query, scheduled, warmupEnd, end);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * @param scheduled Desde dónde se mide la latencia: el envío real (closed-loop)
+     *                  o el instante programado (open-loop)
+     */
+    private void send(Settings settings, String query, long scheduled, long warmupEnd, long end)
+            throws InterruptedException {
+        boolean measured = scheduled >= warmupEnd;
+        try {
+            String body = mapper.writeValueAsString(Map.of("message", query));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(settings.targetUrl()))
+                    .timeout(Duration.ofSeconds(120))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            long finished = System.nanoTime();
+            boolean ok = response.statusCode() == 200;
+
+            // Throughput: solo lo que termina dentro de la ventana medida
+            if (ok && finished >= warmupEnd && finished <= end) completedInWindow.incrementAndGet();
+            if (!measured) return;
+
+            if (!ok) {
+                errors.incrementAndGet();
+                return;
+            }
+            latencies.add(finished - scheduled);
+            recordStages(mapper.readTree(response.body()).path("timings"));
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            if (measured) errors.incrementAndGet();
+        }
+    }
+
+    private void recordStages(JsonNode timings) {
+        synchronized (stageMillis) {
+            timings.fields().forEachRemaining(stage -> stageMillis
+                    .computeIfAbsent(stage.getKey(), k -> new ArrayList<>())
+                    .add(stage.getValue().asDouble()));
+        }
+    }
+
+    // ---- Reporte ----
+
+    public record StageSummary(double meanMs, double p50Ms, double p99Ms) {}
+
+    public record Report(
+            String mode,
+            long requests,
+            long errors,
+            double throughputPerSecond,
+            double p50Ms,
+            double p90Ms,
+            double p99Ms,
+            double maxMs,
+            Map<String, StageSummary> stages
+    ) {
+        public void print() {
+            System.out.println();
+            System.out.println("╔════════════════════════════════════════════════════════╗");
+            System.out.println("║  📈 Resultado del test de carga                        ║");
+            System.out.println("╠════════════════════════════════════════════════════════╣");
+            System.out.printf("║  Modo:        %-41s║%n", mode);
+            System.out.printf("║  Requests:    %-41d║%n", requests);
+            System.out.printf("║  Errores:     %-41d║%n", errors);
+            System.out.printf("║  Throughput:  %-41s║%n", String.format("%.1f req/s", throughputPerSecond));
+            System.out.printf("║  Latencia:    %-41s║%n",
+                    String.format("p50 %.0f · p90 %.0f · p99 %.0f · max %.0f ms", p50Ms, p90Ms, p99Ms, maxMs));
+            if (mode.startsWith("closed-loop")) {
+                System.out.printf("║  %-54s║%n", "⚠️ closed-loop: p99 optimista (coordinated omission),");
+                System.out.printf("║  %-54s║%n", "   usar --loadtest.rate para medir a tasa fija");
+            }
+            System.out.println("╠════════════════════════════════════════════════════════╣");
+            stages.forEach((stage, s) -> System.out.printf("║  %-11s  %-41s║%n", stage,
+                    String.format("media %.1f · p50 %.1f · p99 %.1f ms", s.meanMs(), s.p50Ms(), s.p99Ms())));
+            System.out.println("╚════════════════════════════════════════════════════════╝");
+        }
+    }
+
+    private Report report(Settings settings) {
+        List<Double> millis;
+        synchronized (latencies) {
+            millis = latencies.stream().map(nanos -> nanos / 1_000_000.0).sorted().toList();
+        }
+
+        Map<String, StageSummary> stages = new TreeMap<>();
+        synchronized (stageMillis) {
+            stageMillis.forEach((stage, values) -> {
+                List<Double> sorted = values.stream().sorted().toList();
+                double mean = sorted.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+                stages.put(stage, new StageSummary(mean, percentile(sorted, 0.5), percentile(sorted, 0.99)));
+            });
+        }
+
+        return new Report(
+                settings.mode(),
+                millis.size(),
+                errors.get(),
+                completedInWindow.get() / (settings.duration().toMillis() / 1000.0),
+                percentile(millis, 0.5),
+                percentile(millis, 0.9),
+                percentile(millis, 0.99),
+                millis.isEmpty() ? 0 : millis.get(millis.size() - 1),
+                stages);
+    }
+
+    private static double percentile(List<Double> sorted, double p) {
+        if (sorted.isEmpty()) return 0;
+        int idx = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, idx)));
+    }
+}
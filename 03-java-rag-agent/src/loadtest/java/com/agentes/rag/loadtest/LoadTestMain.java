@@ -0,0 +1,153 @@
+// ============================================================
+// loadtest/LoadTestMain.java — Test de carga end-to-end sin red
+// ============================================================
+// 1. Levanta StubOpenAiServer en un puerto libre
+// 2. Arranca la app (in-process) apuntando chat y embeddings
+//    al stub, con documentos sintéticos en un directorio temporal
+// 3. Ingesta los documentos
+// 4. Corre LoadGenerator contra /api/chat (o el endpoint elegido)
+//    e imprime throughput, p50/p99 y el desglose por etapa
+//
+// Argumentos (--clave=valor, se copian a System properties):
+//   --loadtest.endpoint=/api/chat     o /api/orchestrate
+//   --loadtest.concurrency=16         workers closed-loop
+//   --loadtest.rate=0                 > 0: open-loop a esa tasa (req/s)
+//   --loadtest.warmup-s=5
+//   --loadtest.duration-s=30
+//   --loadtest.queries=50             consultas distintas
+//   --loadtest.documents=20           documentos sintéticos
+//   --loadtest.target=http://...      app ya corriendo (no levanta stub ni app)
+//   --stub.*                          ver StubOpenAiServer
+// ============================================================
+
+package com.agentes.rag.loadtest;
+
+import com.agentes.rag.RagAgentApplication;
+import com.agentes.rag.config.ProviderResolver;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                System.setProperty(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+
+        String endpoint = System.getProperty("loadtest.endpoint", "/api/chat");
+        String target = System.getProperty("loadtest.target");
+        var settings = new LoadGenerator.Settings(
+                null,
+                Integer.getInteger("loadtest.concurrency", 16),
+                Double.parseDouble(System.getProperty("loadtest.rate", "0")),
+                Duration.ofSeconds(Long.getLong("loadtest.warmup-s", 5)),
+                Duration.ofSeconds(Long.getLong("loadtest.duration-s", 30)),
+                queries(Integer.getInteger("loadtest.queries", 50)));
+
+        if (target != null) {
+            run(target + endpoint, settings);
+            return;
+        }
+
+        try (var stub = new StubOpenAiServer(0)) {
+            stub.start();
+            System.out.printf("🧪 Stub OpenAI en %s%n", stub.baseUrl());
+
+            try (ConfigurableApplicationContext app = startApp(stub.baseUrl())) {
+                String appUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+                ingest(appUrl);
+                run(appUrl + endpoint, settings);
+            }
+        }
+    }
+
+    private static void run(String url, LoadGenerator.Settings settings) throws InterruptedException {
+        System.out.printf("🚀 %s contra %s (warm-up %ds, medición %ds)%n",
+                settings.mode(), url, settings.warmup().toSeconds(), settings.duration().toSeconds());
+        new LoadGenerator()
+                .run(new LoadGenerator.Settings(url, settings.concurrency(), settings.ratePerSecond(),
+                        settings.warmup(), settings.duration(), settings.queries()))
+                .print();
+    }
+
+    /** Arranca la app con chat y embeddings apuntando al stub (sin leer .env) */
+    private static ConfigurableApplicationContext startApp(String stubUrl) throws IOException {
+        System.setProperty("PROVIDER", "ollama");
+        System.setProperty("OPENAI_BASE_URL", stubUrl);
+        System.setProperty("OPENAI_API_KEY", "stub");
+        System.setProperty("MODEL", "stub-chat");
+        System.setProperty("EMBEDDING_BASE_URL", stubUrl);
+        System.setProperty("EMBEDDING_API_KEY", "stub");
+        System.setProperty("EMBEDDING_MODEL", "stub-embedding");
+        ProviderResolver.resolve();
+
+        Path documents = syntheticDocuments(Integer.getInteger("loadtest.documents", 20));
+        return SpringApplication.run(RagAgentApplication.class,
+                "--server.port=0",
+                "--rag.documents-path=" + documents,
+                "--logging.level.root=WARN");
+    }
+
+    private static void ingest(String appUrl) throws IOException, InterruptedException {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(appUrl + "/api/documents/ingest-all"))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        System.out.printf("📚 Ingesta: %s%n", response.body());
+    }
+
+    // ---- Datos sintéticos deterministas ----
+
+    private static final String[] WORDS = {
+            "agente", "documento", "manual", "versión", "instalación", "configuración",
+            "proveedor", "embedding", "consulta", "índice", "latencia", "servidor",
+            "usuario", "respuesta", "contexto", "modelo", "error", "memoria",
+            "seguridad", "red", "archivo", "cliente", "proceso", "datos"
+    };
+
+    private static Path syntheticDocuments(int count) throws IOException {
+        Path dir = Files.createTempDirectory("rag-loadtest-docs");
+        var random = new SplittableRandom(42);
+        for (int i = 0; i < count; i++) {
+            Files.writeString(dir.resolve("doc-" + i + ".txt"), sentences(random, 200));
+        }
+        return dir;
+    }
+
+    private static List<String> queries(int count) {
+        var random = new SplittableRandom(7);
+        List<String> queries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            queries.add("¿Qué dice el " + sentences(random, 1).toLowerCase() + "?");
+        }
+        return queries;
+    }
+
+    private static String sentences(SplittableRandom random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int s = 0; s < count; s++) {
+            for (int w = 0; w < 8; w++) {
+                if (w > 0) sb.append(' ');
+                sb.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            sb.append(count > 1 ? ". " : "");
+        }
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,343 @@
+// ============================================================
+// loadtest/StubOpenAiServer.java — Servidor OpenAI-compatible falso
+// ============================================================
+// Implementa lo mínimo de la API de OpenAI que usa Spring AI:
+//
+//   POST */chat/completions  → respuesta normal o streaming (SSE),
+//                              con tool calls si el request trae tools
+//   POST */embeddings        → vectores deterministas (feature hashing)
+//
+// Latencia y errores son configurables (system properties), así
+// se puede cargar la app sin gastar cuota de un proveedor real:
+//
+//   stub.latency-median-ms   mediana de la latencia del chat (200)
+//   stub.latency-p99-ms      p99 de la latencia del chat (1000)
+//                            → distribución log-normal
+//   stub.embedding-latency-ms latencia fija de embeddings (5)
+//   stub.error-rate          fracción de requests con HTTP 500 (0.0)
+//   stub.tool-call-rate      fracción de respuestas con tool call (0.3)
+//   stub.stream-tokens       tokens por respuesta en streaming (40)
+//   stub.embedding-dims      dimensiones de los embeddings (384)
+//
+// Uso standalone: java ... StubOpenAiServer [puerto]
+// ============================================================
+
+package com.agentes.rag.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class StubOpenAiServer implements AutoCloseable {
+
+    private static final double Z_99 = 2.326;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+
+    private final double latencyMu;
+    private final double latencySigma;
+    private final long embeddingLatencyMs;
+    private final double errorRate;
+    private final double toolCallRate;
+    private final int streamTokens;
+    private final int embeddingDims;
+
+    public StubOpenAiServer(int port) throws IOException {
+        double median = Double.parseDouble(System.getProperty("stub.latency-median-ms", "200"));
+        double p99 = Double.parseDouble(System.getProperty("stub.latency-p99-ms", "1000"));
+        this.latencyMu = Math.log(Math.max(1, median));
+        this.latencySigma = Math.max(0, Math.log(Math.max(p99, median) / Math.max(1, median)) / Z_99);
+        this.embeddingLatencyMs = Long.getLong("stub.embedding-latency-ms", 5);
+        this.errorRate = Double.parseDouble(System.getProperty("stub.error-rate", "0.0"));
+        this.toolCallRate = Double.parseDouble(System.getProperty("stub.tool-call-rate", "0.3"));
+        this.streamTokens = Integer.getInteger("stub.stream-tokens", 40);
+        this.embeddingDims = Integer.getInteger("stub.embedding-dims", 384);
+
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9099;
+        var stub = new StubOpenAiServer(port);
+        stub.start();
+        System.out.printf("🧪 Stub OpenAI escuchando en %s%n", stub.baseUrl());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    // ---- Routing de requests ----
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            JsonNode body = mapper.readTree(exchange.getRequestBody());
+
+            // Acepta /v1/..., /v1/v1/... o sin prefijo (GitHub Models)
+            if (path.endsWith("/embeddings")) {
+                sleep(embeddingLatencyMs);
+                sendJson(exchange, 200, embeddings(body));
+            } else if (path.endsWith("/chat/completions")) {
+                sleep(sampleLatencyMs());
+                if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    sendJson(exchange, 500, error("stub: error inyectado"));
+                } else if (body.path("stream").asBoolean(false)) {
+                    stream(exchange, body);
+                } else {
+                    sendJson(exchange, 200, completion(body));
+                }
+            } else {
+                sendJson(exchange, 404, error("stub: ruta no soportada " + path));
+            }
+        }
+    }
+
+    // ---- Chat completions ----
+
+    private ObjectNode completion(JsonNode request) {
+        ObjectNode response = mapper.createObjectNode();
+        response.put("id", "chatcmpl-" + UUID.randomUUID());
+        response.put("object", "chat.completion");
+        response.put("created", System.currentTimeMillis() / 1000);
+        response.put("model", request.path("model").asText("stub"));
+
+        ObjectNode message = mapper.createObjectNode();
+        message.put("role", "assistant");
+        String finishReason = "stop";
+
+        JsonNode toolCall = maybeToolCall(request);
+        if (toolCall != null) {
+            message.putNull("content");
+            message.putArray("tool_calls").add(toolCall);
+            finishReason = "tool_calls";
+        } else {
+            message.put("content", answer(request));
+        }
+
+        ObjectNode choice = response.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.set("message", message);
+        choice.put("finish_reason", finishReason);
+        response.set("usage", usage(request, message.path("content").asText("")));
+        return response;
+    }
+
+    private void stream(HttpExchange exchange, JsonNode request) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        String id = "chatcmpl-" + UUID.randomUUID();
+
+        JsonNode toolCall = maybeToolCall(request);
+        if (toolCall != null) {
+            ObjectNode delta = mapper.createObjectNode();
+            delta.put("role", "assistant");
+            ((ObjectNode) toolCall).put("index", 0);
+            delta.putArray("tool_calls").add(toolCall);
+            writeChunk(out, chunk(id, request, delta, null));
+            writeChunk(out, chunk(id, request, mapper.createObjectNode(), "tool_calls"));
+        } else {
+            String[] tokens = answer(request).split(" ");
+            long perTokenMs = Math.max(1, sampleLatencyMs() / Math.max(1, streamTokens));
+            for (int i = 0; i < tokens.length; i++) {
+                ObjectNode delta = mapper.createObjectNode();
+                if (i == 0) delta.put("role", "assistant");
+                delta.put("content", (i == 0 ? "" : " ") + tokens[i]);
+                writeChunk(out, chunk(id, request, delta, null));
+                sleep(perTokenMs);
+            }
+            writeChunk(out, chunk(id, request, mapper.createObjectNode(), "stop"));
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private ObjectNode chunk(String id, JsonNode request, ObjectNode delta, String finishReason) {
+        ObjectNode chunk = mapper.createObjectNode();
+        chunk.put("id", id);
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("created", System.currentTimeMillis() / 1000);
+        chunk.put("model", request.path("model").asText("stub"));
+        ObjectNode choice = chunk.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.set("delta", delta);
+        if (finishReason == null) choice.putNull("finish_reason");
+        else choice.put("finish_reason", finishReason);
+        return chunk;
+    }
+
+    private void writeChunk(OutputStream out, JsonNode chunk) throws IOException {
+        out.write(("data: " + mapper.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Pide un tool (el primero de searchDocuments/analyzeData disponible)
+     * solo en el primer turno: si ya hay mensajes "tool", responde texto.
+     */
+    private JsonNode maybeToolCall(JsonNode request) {
+        JsonNode tools = request.path("tools");
+        if (!tools.isArray() || tools.isEmpty()) return null;
+        for (JsonNode message : request.path("messages")) {
+            if ("tool".equals(message.path("role").asText())) return null;
+        }
+        if (ThreadLocalRandom.current().nextDouble() >= toolCallRate) return null;
+
+        String name = tools.get(0).path("function").path("name").asText();
+        for (JsonNode tool : tools) {
+            if ("searchDocuments".equals(tool.path("function").path("name").asText())) {
+                name = "searchDocuments";
+            }
+        }
+
+        ObjectNode arguments = mapper.createObjectNode();
+        if ("analyzeData".equals(name)) {
+            ArrayNode values = arguments.putArray("values");
+            for (int i = 1; i <= 10; i++) values.add(i * 1.5);
+            arguments.put("description", "stub");
+        } else {
+            arguments.put("query", truncate(lastUserMessage(request), 80));
+            arguments.put("maxResults", 3);
+        }
+
+        ObjectNode call = mapper.createObjectNode();
+        call.put("id", "call_" + UUID.randomUUID().toString().substring(0, 8));
+        call.put("type", "function");
+        ObjectNode function = call.putObject("function");
+        function.put("name", name);
+        function.put("arguments", arguments.toString());
+        return call;
+    }
+
+    /** El router del orquestador espera solo el nombre del especialista */
+    private String answer(JsonNode request) {
+        for (JsonNode message : request.path("messages")) {
+            if ("system".equals(message.path("role").asText())
+                    && message.path("content").asText().contains("agente router")) {
+                return "RAG";
+            }
+        }
+        StringBuilder sb = new StringBuilder("Respuesta del stub basada en el contexto:");
+        for (int i = 0; i < streamTokens; i++) sb.append(" token").append(i);
+        return sb.toString();
+    }
+
+    private String lastUserMessage(JsonNode request) {
+        String last = "";
+        for (JsonNode message : request.path("messages")) {
+            if ("user".equals(message.path("role").asText())) last = message.path("content").asText();
+        }
+        return last;
+    }
+
+    private ObjectNode usage(JsonNode request, String completion) {
+        int promptTokens = 0;
+        for (JsonNode message : request.path("messages")) {
+            promptTokens += message.path("content").asText("").split("\\s+").length;
+        }
+        int completionTokens = completion.isEmpty() ? 1 : completion.split("\\s+").length;
+        ObjectNode usage = mapper.createObjectNode();
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", promptTokens + completionTokens);
+        return usage;
+    }
+
+    // ---- Embeddings ----
+
+    private ObjectNode embeddings(JsonNode request) {
+        JsonNode input = request.path("input");
+        ObjectNode response = mapper.createObjectNode();
+        response.put("object", "list");
+        response.put("model", request.path("model").asText("stub-embedding"));
+        ArrayNode data = response.putArray("data");
+
+        int tokens = 0;
+        int index = 0;
+        for (JsonNode text : input.isArray() ? input : mapper.createArrayNode().add(input)) {
+            ObjectNode item = data.addObject();
+            item.put("object", "embedding");
+            item.put("index", index++);
+            ArrayNode vector = item.putArray("embedding");
+            for (float v : vector(text.asText())) vector.add(v);
+            tokens += text.asText().split("\\s+").length;
+        }
+
+        ObjectNode usage = response.putObject("usage");
+        usage.put("prompt_tokens", tokens);
+        usage.put("total_tokens", tokens);
+        return response;
+    }
+
+    /** Feature hashing: textos con palabras en común → vectores cercanos */
+    private float[] vector(String text) {
+        float[] vector = new float[embeddingDims];
+        for (String word : text.toLowerCase().split("\\W+")) {
+            if (word.isEmpty()) continue;
+            int hash = word.hashCode() * 0x9E3779B9;
+            vector[Math.floorMod(hash, embeddingDims)] += hash >= 0 ? 1 : -1;
+        }
+        double norm = 0;
+        for (float v : vector) norm += v * v;
+        float inv = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0;
+        for (int d = 0; d < embeddingDims; d++) vector[d] *= inv;
+        return vector;
+    }
+
+    // ---- Helpers ----
+
+    private long sampleLatencyMs() {
+        return Math.round(Math.exp(latencyMu + latencySigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    private ObjectNode error(String message) {
+        ObjectNode error = mapper.createObjectNode();
+        ObjectNode detail = error.putObject("error");
+        detail.put("message", message);
+        detail.put("type", "server_error");
+        return error;
+    }
+
+    private void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String truncate(String s, int max) {
+        return s.length() > max ? s.substring(0, max) : s;
+    }
+}
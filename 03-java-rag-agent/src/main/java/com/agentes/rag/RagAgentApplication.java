@@ -2,6 +2,7 @@ package com.agentes.rag;
 
 import com.agentes.rag.config.EnvLoader;
 import com.agentes.rag.config.ProviderResolver;
+import com.agentes.rag.observability.StartupTimeline;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -9,10 +10,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class RagAgentApplication {
     public static void main(String[] args) {
         // 1. Cargar variables del .env (raíz del workspace, compartido con proyectos TS)
-        EnvLoader.load();
+        StartupTimeline.time("env-loader", EnvLoader::load);
         // 2. Resolver PROVIDER → URLs y modelos concretos
-        ProviderResolver.resolve();
-        // 3. Arrancar Spring Boot (usa las System properties seteadas arriba)
-        SpringApplication.run(RagAgentApplication.class, args);
+        StartupTimeline.time("provider-resolver", ProviderResolver::resolve);
+        // 3. Arrancar Spring Boot (usa las System properties seteadas arriba),
+        //    registrando sus fases para GET /api/startup
+        var application = new SpringApplication(RagAgentApplication.class);
+        application.setApplicationStartup(StartupTimeline.applicationStartup());
+        application.run(args);
     }
 }
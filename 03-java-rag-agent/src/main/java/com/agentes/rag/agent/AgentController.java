@@ -6,11 +6,22 @@ package com.agentes.rag.agent;
 
 import com.agentes.rag.config.ProviderResolver;
 import com.agentes.rag.rag.DocumentIngestionService;
+import com.agentes.rag.rag.RetrievalService;
+import com.agentes.rag.routing.ProviderStats;
+import com.agentes.rag.routing.RoutingChatModel;
+import com.agentes.rag.tools.ToolExecutor;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -21,14 +32,29 @@ public class AgentController {
     private final RagAgent ragAgent;
     private final MultiAgentOrchestrator orchestrator;
     private final DocumentIngestionService ingestionService;
+    private final ChatModel chatModel;
+    private final ToolExecutor toolExecutor;
+    private final RetrievalService retrievalService;
+    private final int maxBatchQueries;
+    private final int maxBatchTopK;
 
     public AgentController(
             RagAgent ragAgent,
             MultiAgentOrchestrator orchestrator,
-            DocumentIngestionService ingestionService) {
+            DocumentIngestionService ingestionService,
+            ChatModel chatModel,
+            ToolExecutor toolExecutor,
+            RetrievalService retrievalService,
+            @Value("${app.search.batch.max-queries:5000}") int maxBatchQueries,
+            @Value("${app.search.batch.max-top-k:100}") int maxBatchTopK) {
         this.ragAgent = ragAgent;
         this.orchestrator = orchestrator;
         this.ingestionService = ingestionService;
+        this.chatModel = chatModel;
+        this.toolExecutor = toolExecutor;
+        this.retrievalService = retrievalService;
+        this.maxBatchQueries = maxBatchQueries;
+        this.maxBatchTopK = maxBatchTopK;
     }
 
     /** Info del proveedor (para el frontend) */
@@ -37,6 +63,21 @@ public class AgentController {
         return ResponseEntity.ok(ProviderResolver.getInfo());
     }
 
+    /** Latencia p50/p95 y tasa de error por proveedor (solo con routing multi-proveedor) */
+    @GetMapping("/providers")
+    public ResponseEntity<Map<String, ProviderStats.Snapshot>> providers() {
+        if (chatModel instanceof RoutingChatModel routing) {
+            return ResponseEntity.ok(routing.stats());
+        }
+        return ResponseEntity.ok(Map.of());
+    }
+
+    /** Llamadas, aciertos de cache y latencia por tool */
+    @GetMapping("/tools/stats")
+    public ResponseEntity<Map<String, ToolExecutor.ToolStats.Snapshot>> toolStats() {
+        return ResponseEntity.ok(toolExecutor.stats());
+    }
+
     /** Chat simple con RAG */
     @PostMapping("/chat")
     public ResponseEntity<RagAgent.AgentResponse> chat(@RequestBody Map<String, String> body) {
@@ -47,6 +88,48 @@ public class AgentController {
         return ResponseEntity.ok(ragAgent.chat(message));
     }
 
+    /** Chat con RAG en streaming (Server-Sent Events, un evento por token) */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<String>> chatStream(@RequestBody Map<String, String> body) {
+        String message = body.get("message");
+        if (message == null || message.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(ragAgent.chatStream(message));
+    }
+
+    /**
+     * Búsqueda semántica de muchas consultas a la vez (sin LLM).
+     * Body: {"queries": ["...", ...], "topK": 5, "threshold": 0.0}
+     */
+    @PostMapping("/search/batch")
+    public ResponseEntity<List<BatchSearchResult>> searchBatch(@RequestBody BatchSearchRequest request) {
+        if (request.queries() == null || request.queries().isEmpty()
+                || request.queries().size() > maxBatchQueries
+                || request.queries().stream().anyMatch(q -> q == null || q.isBlank())) {
+            return ResponseEntity.badRequest().build();
+        }
+        int topK = request.topK() != null ? request.topK() : 5;
+        double threshold = request.threshold() != null ? request.threshold() : 0.0;
+        // Similitud coseno: fuera de [-1, 1] (o NaN) el umbral no tiene sentido
+        if (topK < 1 || topK > maxBatchTopK || !(threshold >= -1 && threshold <= 1)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<List<Document>> results = retrievalService.searchBatch(request.queries(), topK, threshold);
+        List<BatchSearchResult> response = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            response.add(new BatchSearchResult(request.queries().get(i), results.get(i).stream()
+                    .map(doc -> new SearchHit(
+                            doc.getId(),
+                            String.valueOf(doc.getMetadata().getOrDefault("source", "desconocido")),
+                            1 - ((Number) doc.getMetadata().getOrDefault("distance", 1.0)).doubleValue(),
+                            doc.getContent()))
+                    .toList()));
+        }
+        return ResponseEntity.ok(response);
+    }
+
     /** Chat con orquestación multi-agente */
     @PostMapping("/orchestrate")
     public ResponseEntity<MultiAgentOrchestrator.OrchestratorResponse> orchestrate(
@@ -62,13 +145,14 @@ public class AgentController {
     @PostMapping("/documents/upload")
     public ResponseEntity<Map<String, Object>> uploadDocument(@RequestParam("file") MultipartFile file)
             throws IOException {
-        int chunks = ingestionService.ingestDocument(
+        var result = ingestionService.ingestDocument(
                 file.getResource(),
                 file.getOriginalFilename()
         );
         return ResponseEntity.ok(Map.of(
                 "filename", file.getOriginalFilename(),
-                "chunks", chunks,
+                "chunks", result.chunks(),
+                "deduplication", result.deduplication(),
                 "message", "Documento ingestado correctamente"
         ));
     }
@@ -76,9 +160,10 @@ public class AgentController {
     /** Ingestar todos los documentos del directorio */
     @PostMapping("/documents/ingest-all")
     public ResponseEntity<Map<String, Object>> ingestAll() throws IOException {
-        int chunks = ingestionService.ingestAll();
+        var result = ingestionService.ingestAll();
         return ResponseEntity.ok(Map.of(
-                "chunks", chunks,
+                "chunks", result.chunks(),
+                "deduplication", result.deduplication(),
                 "message", "Todos los documentos ingestados"
         ));
     }
@@ -89,4 +174,22 @@ public class AgentController {
         ragAgent.reset();
         return ResponseEntity.ok(Map.of("status", "ok"));
     }
+
+    public record BatchSearchRequest(
+            List<String> queries,
+            Integer topK,
+            Double threshold
+    ) {}
+
+    public record SearchHit(
+            String id,
+            String source,
+            double score,           // similitud coseno
+            String content
+    ) {}
+
+    public record BatchSearchResult(
+            String query,
+            List<SearchHit> results
+    ) {}
 }
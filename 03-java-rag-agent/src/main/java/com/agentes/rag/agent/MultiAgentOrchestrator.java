@@ -28,9 +28,14 @@
 
 package com.agentes.rag.agent;
 
+import com.agentes.rag.observability.RagEvents;
+import com.agentes.rag.observability.RagMetrics;
+import com.agentes.rag.observability.StageTimer;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Service
@@ -38,6 +43,7 @@ public class MultiAgentOrchestrator {
 
     private final ChatClient routerClient;
     private final RagAgent ragAgent;
+    private final RagMetrics metrics;
 
     private static final String ROUTER_PROMPT = """
             Eres un agente router. Tu trabajo es analizar la consulta del usuario
@@ -53,11 +59,13 @@ public class MultiAgentOrchestrator {
 
     public MultiAgentOrchestrator(
             ChatClient.Builder chatClientBuilder,
-            RagAgent ragAgent) {
+            RagAgent ragAgent,
+            RagMetrics metrics) {
         this.routerClient = chatClientBuilder
                 .defaultSystem(ROUTER_PROMPT)
                 .build();
         this.ragAgent = ragAgent;
+        this.metrics = metrics;
     }
 
     /**
@@ -68,36 +76,44 @@ public class MultiAgentOrchestrator {
      * 3. Retorna la respuesta del especialista
      */
     public OrchestratorResponse orchestrate(String userQuery) {
+        StageTimer timer = metrics.stageTimer();
+
         // Step 1: Router decide
-        String specialist = routerClient.prompt()
-                .user(userQuery)
-                .call()
-                .content()
+        ChatResponse routerResponse = timer.time("router", () -> RagEvents.llmCall("router", 2,
+                () -> routerClient.prompt()
+                        .user(userQuery)
+                        .call()
+                        .chatResponse()));
+        metrics.recordUsage(routerResponse);
+        String specialist = routerResponse.getResult().getOutput().getContent()
                 .trim()
                 .toUpperCase();
 
         // Step 2: Delegar al especialista
-        String response;
+        RagAgent.AgentResponse ragResponse;
         switch (specialist) {
             case "RAG", "DATA", "SUMMARY" -> {
                 // Por ahora todos van al RAG agent
                 // En producción, cada case tendría su propio agente
-                var ragResponse = ragAgent.chat(userQuery);
-                response = ragResponse.answer();
+                ragResponse = ragAgent.chat(userQuery);
             }
             default -> {
                 // Fallback al RAG agent
                 specialist = "RAG";
-                var ragResponse = ragAgent.chat(userQuery);
-                response = ragResponse.answer();
+                ragResponse = ragAgent.chat(userQuery);
             }
         }
 
-        return new OrchestratorResponse(response, specialist);
+        // Tiempos: router + etapas del especialista
+        Map<String, Double> timings = new LinkedHashMap<>(timer.millis());
+        timings.putAll(ragResponse.timings());
+
+        return new OrchestratorResponse(ragResponse.answer(), specialist, timings);
     }
 
     public record OrchestratorResponse(
             String answer,
-            String selectedSpecialist
+            String selectedSpecialist,
+            Map<String, Double> timings    // ms por etapa: router, retrieval, llm, tools
     ) {}
 }
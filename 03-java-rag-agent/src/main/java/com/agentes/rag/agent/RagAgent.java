@@ -4,8 +4,8 @@
 // (ver docs/summary.md#rag-retrieval-augmented-generation)
 // (ver docs/summary.md#tool-calling-typescript-vs-java)
 //
-// CONCEPTO CLAVE: Spring AI provee ChatClient con soporte
-// nativo para tool calling. El agente:
+// CONCEPTO CLAVE: el modelo puede pedir tools (tool calling).
+// El agente:
 //   1. Recibe la consulta del usuario
 //   2. Busca contexto relevante (RAG retrieval)
 //   3. Construye un prompt con el contexto
@@ -16,28 +16,61 @@
 // MULTI-AGENT: Este archivo también muestra cómo orquestar
 // múltiples "especialistas" (agentes con diferentes prompts
 // y tools) que colaboran para resolver tareas complejas.
+//
+// SINGLE-FLIGHT: consultas idénticas concurrentes (misma query
+// normalizada + misma versión del índice) comparten UNA sola
+// ejecución de retrieval + LLM (ver agent/RequestCoalescer.java).
+//
+// TOOLS: tanto en el chat bloqueante como en streaming los tool
+// calls los resuelve ToolExecutor (en paralelo y con cache), no
+// el loop interno de Spring AI.
 // ============================================================
 
 package com.agentes.rag.agent;
 
+import com.agentes.rag.observability.RagMetrics;
+import com.agentes.rag.observability.StageTimer;
+import com.agentes.rag.rag.DocumentIngestionService;
 import com.agentes.rag.rag.RetrievalService;
-import org.springframework.ai.chat.client.ChatClient;
+import com.agentes.rag.tools.ToolExecutor;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
+import java.text.Normalizer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class RagAgent {
 
-    private final ChatClient chatClient;
+    private static final Set<String> TOOLS = Set.of("searchDocuments", "analyzeData");
+
+    /** Un stream compartido que nadie suscribe en este tiempo se libera del coalescer */
+    private static final long STREAM_SUBSCRIBE_GRACE_MS = 10_000;
+
+    private final ToolExecutor toolExecutor;
     private final RetrievalService retrievalService;
-    private final List<Message> conversationHistory = new ArrayList<>();
+    private final DocumentIngestionService ingestionService;
+    private final RagMetrics metrics;
+    private final List<Message> conversationHistory = Collections.synchronizedList(new ArrayList<>());
+
+    // null = coalescing deshabilitado
+    private final RequestCoalescer<CoalescingKey, AgentResponse> chatCoalescer;
+    private final RequestCoalescer<CoalescingKey, Flux<String>> streamCoalescer;
 
     private static final String SYSTEM_PROMPT = """
             Eres un asistente experto que responde preguntas basándose en documentos proporcionados.
@@ -51,12 +84,32 @@ public class RagAgent {
             6. Si la pregunta requiere cálculos, usa la herramienta de análisis de datos
             """;
 
-    public RagAgent(ChatClient.Builder chatClientBuilder, RetrievalService retrievalService) {
-        this.chatClient = chatClientBuilder
-                .defaultSystem(SYSTEM_PROMPT)
-                .defaultFunctions("searchDocuments", "analyzeData") // Registrar tools
-                .build();
+    public RagAgent(
+            ToolExecutor toolExecutor,
+            RetrievalService retrievalService,
+            DocumentIngestionService ingestionService,
+            RagMetrics metrics,
+            @Value("${app.coalescing.enabled:true}") boolean coalescingEnabled,
+            @Value("${app.coalescing.window-ms:2000}") long coalescingWindowMs,
+            @Value("${app.coalescing.max-in-flight-ms:120000}") long coalescingMaxInFlightMs,
+            @Value("${app.coalescing.join-timeout-ms:30000}") long coalescingJoinTimeoutMs) {
+        this.toolExecutor = toolExecutor;
         this.retrievalService = retrievalService;
+        this.ingestionService = ingestionService;
+        this.metrics = metrics;
+        this.chatCoalescer = coalescingEnabled
+                ? new RequestCoalescer<>(coalescingWindowMs, coalescingMaxInFlightMs, coalescingJoinTimeoutMs)
+                : null;
+        this.streamCoalescer = coalescingEnabled
+                ? new RequestCoalescer<>(coalescingWindowMs, coalescingMaxInFlightMs, coalescingJoinTimeoutMs)
+                : null;
+
+        if (coalescingEnabled) {
+            // hit = request que se unió a uno en vuelo; miss = ejecutó el trabajo
+            metrics.cacheGets("request-coalescing", this,
+                    agent -> agent.chatCoalescer.hits() + agent.streamCoalescer.hits(),
+                    agent -> agent.chatCoalescer.misses() + agent.streamCoalescer.misses());
+        }
     }
 
     /**
@@ -66,13 +119,119 @@ public class RagAgent {
      * 1. Retrieval: buscar contexto relevante en el vector store
      * 2. Augment: incluir el contexto en el prompt
      * 3. Generate: enviar al LLM con tools disponibles
+     *
+     * Requests idénticos concurrentes comparten una sola ejecución.
      */
     public AgentResponse chat(String userQuery) {
+        if (chatCoalescer == null) {
+            return doChat(userQuery);
+        }
+        return chatCoalescer.call(coalescingKey(userQuery), () -> doChat(userQuery));
+    }
+
+    /**
+     * Igual que chat() pero emitiendo la respuesta token a token.
+     * Los requests idénticos que llegan mientras se genera se suman
+     * al mismo stream y reciben todos los tokens desde el principio.
+     */
+    public Flux<String> chatStream(String userQuery) {
+        if (streamCoalescer == null) {
+            return doChatStream(userQuery, null);
+        }
+        return streamCoalescer.share(coalescingKey(userQuery),
+                completion -> sharedStream(userQuery, completion));
+    }
+
+    /**
+     * Stream compartido entre clientes: se conecta al LLM con el primer
+     * suscriptor y se cancela (deja de generar tokens) cuando se van
+     * todos. Quien llega después de terminar, dentro de la ventana del
+     * coalescer, recibe los tokens ya generados sin volver a llamar al LLM.
+     */
+    private Flux<String> sharedStream(String userQuery, RequestCoalescer.Completion completion) {
+        List<String> tokens = new ArrayList<>();
+        AtomicReference<List<String>> finished = new AtomicReference<>();
+        AtomicBoolean connected = new AtomicBoolean();
+
+        Flux<String> live = doChatStream(userQuery, new RequestCoalescer.Completion() {
+                    @Override
+                    public void succeeded() {
+                        finished.set(List.copyOf(tokens));
+                        completion.succeeded();
+                    }
+
+                    @Override
+                    public void failed() {
+                        completion.failed();
+                    }
+                })
+                .doOnSubscribe(subscription -> connected.set(true))
+                .doOnNext(tokens::add)
+                .replay()
+                .refCount(1);
+
+        CompletableFuture.delayedExecutor(STREAM_SUBSCRIBE_GRACE_MS, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!connected.get()) completion.failed();
+        });
+
+        return Flux.defer(() -> {
+            List<String> done = finished.get();
+            return done != null ? Flux.fromIterable(done) : live;
+        });
+    }
+
+    private AgentResponse doChat(String userQuery) {
+        StageTimer timer = metrics.stageTimer();
+
         // Step 1: RETRIEVE — Buscar contexto relevante
-        String context = retrievalService.searchAndFormat(userQuery, 5);
+        String context = timer.time("retrieval", () -> retrievalService.searchAndFormat(userQuery, 5));
 
         // Step 2: AUGMENT — Construir prompt con contexto
-        String augmentedQuery = String.format("""
+        String augmentedQuery = augment(context, userQuery);
+
+        // Step 3: GENERATE — Enviar al LLM (ToolExecutor resuelve los tool calls)
+        String response = toolExecutor.call(
+                        List.of(new SystemMessage(SYSTEM_PROMPT), new UserMessage(augmentedQuery)),
+                        TOOLS, timer)
+                .getResult()
+                .getOutput()
+                .getContent();
+
+        // Actualizar historial
+        conversationHistory.add(new UserMessage(userQuery));
+        conversationHistory.add(new AssistantMessage(response));
+
+        return new AgentResponse(response, context, conversationHistory.size(), timer.millis());
+    }
+
+    private Flux<String> doChatStream(String userQuery, RequestCoalescer.Completion completion) {
+        StringBuilder answer = new StringBuilder();
+
+        // defer: el retrieval corre al suscribirse, no al armar el Flux (nadie lo
+        // hace si el cliente se va antes, y no bloquea a quien arma el stream)
+        return Flux.defer(() -> {
+                    String context = retrievalService.searchAndFormat(userQuery, 5);
+                    return toolExecutor.stream(
+                            List.of(new SystemMessage(SYSTEM_PROMPT), new UserMessage(augment(context, userQuery))),
+                            TOOLS);
+                })
+                .doOnNext(answer::append)
+                .doOnComplete(() -> {
+                    conversationHistory.add(new UserMessage(userQuery));
+                    conversationHistory.add(new AssistantMessage(answer.toString()));
+                    if (completion != null) completion.succeeded();
+                })
+                .doOnError(e -> {
+                    if (completion != null) completion.failed();
+                })
+                .doOnCancel(() -> {
+                    // Se fueron todos los clientes: el LLM ya no genera, el próximo request reintenta
+                    if (completion != null) completion.failed();
+                });
+    }
+
+    private static String augment(String context, String userQuery) {
+        return String.format("""
                 ## Contexto de documentos relevantes:
                 %s
                 
@@ -82,29 +241,33 @@ public class RagAgent {
                 Responde basándote en el contexto proporcionado. Si necesitas más información,
                 usa la herramienta searchDocuments.
                 """, context, userQuery);
+    }
 
-        // Step 3: GENERATE — Enviar al LLM (Spring AI maneja el tool calling loop)
-        String response = chatClient.prompt()
-                .user(augmentedQuery)
-                .call()
-                .content();
-
-        // Actualizar historial
-        conversationHistory.add(new UserMessage(userQuery));
-        conversationHistory.add(new AssistantMessage(response));
-
-        return new AgentResponse(response, context, conversationHistory.size());
+    /**
+     * Clave de coalescing: query normalizada (Unicode, mayúsculas, espacios)
+     * + versión del índice, para no compartir respuestas entre ingestas.
+     */
+    private CoalescingKey coalescingKey(String userQuery) {
+        String normalized = Normalizer.normalize(userQuery, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .trim()
+                .replaceAll("\\s+", " ");
+        return new CoalescingKey(normalized, ingestionService.indexVersion());
     }
 
-    /** Limpiar historial */
+    private record CoalescingKey(String query, long indexVersion) {}
+
+    /** Limpiar historial (y el cache de resultados de tools) */
     public void reset() {
         conversationHistory.clear();
+        toolExecutor.clearCache();
     }
 
     /** Response wrapper */
     public record AgentResponse(
             String answer,
             String context,
-            int historySize
+            int historySize,
+            Map<String, Double> timings    // ms por etapa: retrieval, llm, tools
     ) {}
 }
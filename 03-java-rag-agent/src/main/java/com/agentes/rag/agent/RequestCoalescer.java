@@ -0,0 +1,173 @@
+// ============================================================
+// agent/RequestCoalescer.java — Single-flight de requests
+// ============================================================
+// Si llegan N requests IDÉNTICOS a la vez (misma clave), solo
+// el primero ejecuta el trabajo; el resto espera y recibe el
+// mismo resultado:
+//
+//   t=0   req A ──▶ computa (retrieval + LLM) ──▶ resultado
+//   t=5ms req B ──▶ se une a A ─────────────────▶ mismo resultado
+//   t=9ms req C ──▶ se une a A ─────────────────▶ mismo resultado
+//
+// Tras terminar, el resultado sigue disponible durante una
+// ventana configurable (window) para los que lleguen justo
+// después. Un error nunca se comparte: el siguiente reintenta.
+//
+// Quien se une espera como máximo join-timeout: si el primero
+// sigue colgado, hace su propia llamada (sin compartirla) en
+// vez de quedar bloqueado hasta que el primero termine.
+// ============================================================
+
+package com.agentes.rag.agent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class RequestCoalescer<K, V> {
+
+    /**
+     * Señal de fin del trabajo compartido. Para cómputos bloqueantes
+     * coincide con el retorno; para streams llega al terminar el stream.
+     */
+    public interface Completion {
+        void succeeded();
+        void failed();
+    }
+
+    /** Completion de una llamada que no se comparte con nadie */
+    private static final Completion DETACHED = new Completion() {
+        @Override
+        public void succeeded() {
+        }
+
+        @Override
+        public void failed() {
+        }
+    };
+
+    private static final class Entry<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        final long startedNanos = System.nanoTime();
+        volatile long finishedNanos = -1;
+        volatile boolean failed;
+    }
+
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private final long maxInFlightNanos;
+    private final long joinTimeoutNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param windowMillis      Tiempo que un resultado sigue disponible tras terminar
+     * @param maxInFlightMillis Tope para trabajos que nunca señalizan su fin
+     * @param joinTimeoutMillis Espera máxima de quien se une antes de hacer su propia llamada
+     */
+    public RequestCoalescer(long windowMillis, long maxInFlightMillis, long joinTimeoutMillis) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxInFlightNanos = TimeUnit.MILLISECONDS.toNanos(maxInFlightMillis);
+        this.joinTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(joinTimeoutMillis);
+    }
+
+    /** Cómputo bloqueante compartido: los que se unen esperan el mismo resultado */
+    public V call(K key, Supplier<V> computation) {
+        return share(key, completion -> {
+            try {
+                V value = computation.get();
+                completion.succeeded();
+                return value;
+            } catch (RuntimeException e) {
+                completion.failed();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Forma general: start() arranca el trabajo y retorna su valor (ej: un
+     * Flux cacheado). El trabajo sigue "en vuelo" hasta que se invoque la
+     * Completion, por lo que un stream se comparte mientras se genera.
+     */
+    public V share(K key, Function<Completion, V> start) {
+        Entry<V> mine = new Entry<>();
+        Entry<V> winner = entries.compute(key,
+                (k, current) -> current != null && joinable(current) ? current : mine);
+
+        if (winner != mine) {
+            try {
+                V value = winner.result.get(joinTimeoutNanos, TimeUnit.NANOSECONDS);
+                hits.increment();
+                return value;
+            } catch (ExecutionException e) {
+                hits.increment();
+                throw e.getCause() instanceof RuntimeException re ? re : new CompletionException(e.getCause());
+            } catch (TimeoutException e) {
+                // El primero sigue sin resultado: llamada propia, sin registrarla para otros
+                misses.increment();
+                return start.apply(DETACHED);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Espera de un request idéntico interrumpida", e);
+            }
+        }
+
+        misses.increment();
+        try {
+            V value = start.apply(new Completion() {
+                @Override
+                public void succeeded() {
+                    mine.finishedNanos = System.nanoTime();
+                    expire(key, mine);
+                }
+
+                @Override
+                public void failed() {
+                    mine.failed = true;
+                    entries.remove(key, mine);
+                }
+            });
+            mine.result.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.failed = true;
+            entries.remove(key, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private boolean joinable(Entry<V> entry) {
+        long now = System.nanoTime();
+        if (entry.failed || entry.result.isCompletedExceptionally()) return false;
+        // Protección contra trabajos que nunca señalizan su fin
+        if (now - entry.startedNanos > maxInFlightNanos) return false;
+        long finished = entry.finishedNanos;
+        return finished < 0 || now - finished < windowNanos;
+    }
+
+    private void expire(K key, Entry<V> entry) {
+        if (windowNanos <= 0) {
+            entries.remove(key, entry);
+            return;
+        }
+        CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS)
+                .execute(() -> entries.remove(key, entry));
+    }
+}
@@ -0,0 +1,445 @@
+// ============================================================
+// analytics/CsvColumnReader.java — Parser CSV/TSV columnar
+// ============================================================
+// Lee el archivo con memory-mapping (el SO pagina el archivo
+// directo a memoria, sin copiarlo a buffers del heap) y parsea
+// los bytes sin crear un String por celda:
+//
+//   - Los números se convierten directo desde los bytes
+//   - Solo las celdas de texto se decodifican, una vez por
+//     valor distinto (diccionario)
+//
+// Soporta comillas dobles RFC 4180 ("a,b" y "" como escape),
+// finales de línea \n y \r\n, y la primera fila como encabezado
+// (sin el BOM UTF-8 que agregan Excel y otros exportadores).
+// El archivo se mapea en ventanas de 64 MB: una fila cortada al
+// final de una ventana se vuelve a leer al principio de la
+// siguiente.
+//
+// Proyección: solo las columnas pedidas guardan sus valores; del
+// resto se cuenta cuántas celdas son números y cuántas texto (para
+// describir el archivo), sin arrays ni diccionario. Un CSV ancho o
+// con mucho texto libre no llena el heap.
+// ============================================================
+
+package com.agentes.rag.analytics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public final class CsvColumnReader {
+
+    private static final long WINDOW_BYTES = 64L << 20;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final int maxRows;
+
+    /** @param maxRows Filas de datos a leer como máximo (el resto se ignora) */
+    public CsvColumnReader(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    /** Lee todas las columnas con sus valores */
+    public ColumnarTable read(Path file) throws IOException {
+        return read(file, null);
+    }
+
+    /**
+     * @param columns Columnas cuyos valores se guardan (sin distinguir mayúsculas);
+     *                null = todas. Las demás quedan solo con sus conteos.
+     */
+    public ColumnarTable read(Path file, Set<String> columns) throws IOException {
+        Set<String> projection = columns == null ? null : columns.stream()
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            var parser = new Parser(delimiterFor(file), projection);
+            long position = startsWithBom(channel, size) ? UTF8_BOM.length : 0;
+            while (position < size && !parser.full()) {
+                long length = Math.min(WINDOW_BYTES, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length >= size;
+                int consumed = parser.parse(window, (int) length, last);
+                if (consumed == 0 && !last) {
+                    throw new IOException("Fila de más de " + (WINDOW_BYTES >> 20) + " MB en " + file.getFileName());
+                }
+                position += consumed;
+                if (last) break;
+            }
+            return parser.table();
+        }
+    }
+
+    private static boolean startsWithBom(FileChannel channel, long size) throws IOException {
+        if (size < UTF8_BOM.length) return false;
+        ByteBuffer start = ByteBuffer.allocate(UTF8_BOM.length);
+        while (start.hasRemaining() && channel.read(start, start.position()) >= 0) {
+            // read() posicional puede devolver menos bytes de los pedidos
+        }
+        return Arrays.equals(start.array(), UTF8_BOM);
+    }
+
+    private static byte delimiterFor(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".tsv") || name.endsWith(".tab") ? (byte) '\t' : (byte) ',';
+    }
+
+    // ---- Parser ----
+
+    private final class Parser {
+
+        private final byte delimiter;
+        private final Set<String> projection;
+        private final List<String> header = new ArrayList<>();
+        private ColumnBuilder[] builders;
+        private int rows;
+        private int field;
+        private boolean headerDone;
+
+        Parser(byte delimiter, Set<String> projection) {
+            this.delimiter = delimiter;
+            this.projection = projection;
+        }
+
+        boolean full() {
+            return rows >= maxRows;
+        }
+
+        /**
+         * Parsea las filas completas de la ventana.
+         *
+         * @return Bytes consumidos (hasta el final de la última fila completa)
+         */
+        int parse(MappedByteBuffer buffer, int limit, boolean last) {
+            int rowStart = 0;
+            int fieldStart = 0;
+            boolean inQuotes = false;
+            boolean quoted = false;
+            field = 0;
+
+            for (int i = 0; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (inQuotes) {
+                    if (b == '"') {
+                        if (i + 1 < limit && buffer.get(i + 1) == '"') {
+                            i++;                    // "" escapado
+                        } else {
+                            inQuotes = false;
+                        }
+                    }
+                } else if (b == '"') {
+                    inQuotes = true;
+                    quoted = true;
+                } else if (b == delimiter) {
+                    cell(buffer, fieldStart, i, quoted);
+                    fieldStart = i + 1;
+                    quoted = false;
+                } else if (b == '\n') {
+                    cell(buffer, fieldStart, i, quoted);
+                    endRow();
+                    fieldStart = i + 1;
+                    rowStart = i + 1;
+                    quoted = false;
+                    if (full()) return rowStart;
+                }
+            }
+
+            // Última fila sin \n; rowStart < limit cubre "a,b," (última celda vacía)
+            if (last && (fieldStart < limit || rowStart < limit)) {
+                cell(buffer, fieldStart, limit, quoted);
+                endRow();
+                return limit;
+            }
+            // La fila incompleta se descarta y se relee en la próxima ventana
+            rollback();
+            return rowStart;
+        }
+
+        private void cell(MappedByteBuffer buffer, int start, int end, boolean quoted) {
+            if (end > start && buffer.get(end - 1) == '\r') end--;
+
+            if (!headerDone) {
+                header.add(decode(buffer, start, end, quoted).trim());
+            } else if (field < builders.length && !builders[field].projected) {
+                builders[field].count(classify(buffer, start, end, quoted));
+            } else if (field < builders.length) {
+                ColumnBuilder column = builders[field];
+                if (!quoted) {
+                    double number = parseNumber(buffer, start, end);
+                    if (!Double.isNaN(number)) {
+                        column.addNumber(number);
+                        field++;
+                        return;
+                    }
+                }
+                String text = decode(buffer, start, end, quoted).trim();
+                double number = quoted ? parseText(text) : Double.NaN;
+                if (!Double.isNaN(number)) {
+                    column.addNumber(number);
+                } else if (text.isEmpty()) {
+                    column.addMissing();
+                } else {
+                    column.addText(text);
+                }
+            }
+            field++;
+        }
+
+        private void endRow() {
+            if (!headerDone) {
+                headerDone = true;
+                builders = new ColumnBuilder[header.size()];
+                for (int c = 0; c < builders.length; c++) {
+                    String name = header.get(c).isEmpty() ? "col" + (c + 1) : header.get(c);
+                    builders[c] = new ColumnBuilder(name,
+                            projection == null || projection.contains(name.toLowerCase(Locale.ROOT)));
+                }
+            } else if (field == 1 && builders.length > 1 && builders[0].lastIsMissing()) {
+                builders[0].truncate(rows);     // línea vacía
+            } else {
+                for (int c = field; c < builders.length; c++) {
+                    builders[c].addMissing();   // fila con menos columnas
+                }
+                rows++;
+            }
+            field = 0;
+        }
+
+        /** Deshace las celdas ya agregadas de una fila incompleta */
+        private void rollback() {
+            if (!headerDone) {
+                header.clear();
+            } else {
+                for (ColumnBuilder builder : builders) {
+                    builder.truncate(rows);
+                }
+            }
+            field = 0;
+        }
+
+        ColumnarTable table() {
+            if (builders == null) {
+                return new ColumnarTable(List.of(), 0);
+            }
+            List<ColumnarTable.Column> columns = new ArrayList<>(builders.length);
+            for (ColumnBuilder builder : builders) {
+                columns.add(builder.build(rows));
+            }
+            return new ColumnarTable(columns, rows);
+        }
+    }
+
+    /** Tipo de una celda de una columna no proyectada, sin guardar su valor */
+    private static int classify(MappedByteBuffer buffer, int start, int end, boolean quoted) {
+        if (quoted) {
+            String text = decode(buffer, start, end, true).trim();
+            return text.isEmpty() ? ColumnBuilder.MISSING
+                    : Double.isNaN(parseText(text)) ? ColumnBuilder.TEXT : ColumnBuilder.NUMBER;
+        }
+        if (!Double.isNaN(parseNumber(buffer, start, end))) return ColumnBuilder.NUMBER;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') return ColumnBuilder.TEXT;
+        }
+        return ColumnBuilder.MISSING;
+    }
+
+    /** Decodifica una celda como UTF-8, quitando las comillas si las tiene */
+    private static String decode(MappedByteBuffer buffer, int start, int end, boolean quoted) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        if (quoted) {
+            text = text.trim();
+            if (text.length() >= 2 && text.charAt(0) == '"' && text.charAt(text.length() - 1) == '"') {
+                text = text.substring(1, text.length() - 1);
+            }
+            text = text.replace("\"\"", "\"");
+        }
+        return text;
+    }
+
+    /**
+     * Número decimal directo desde los bytes, o NaN si la celda no es numérica.
+     * Camino rápido: hasta 15 dígitos significativos y exponente chico son
+     * exactos como double, así que mantisa / 10^decimales redondea igual que
+     * Double.parseDouble. Lo demás (notación científica, más dígitos) va a
+     * Double.parseDouble.
+     */
+    static double parseNumber(MappedByteBuffer buffer, int start, int end) {
+        while (start < end && buffer.get(start) == ' ') start++;
+        while (end > start && buffer.get(end - 1) == ' ') end--;
+        if (start == end) return Double.NaN;
+
+        int i = start;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        boolean anyDigit = false;
+        int digits = 0;
+        int decimals = 0;
+        boolean dot = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                anyDigit = true;
+                if (mantissa != 0) digits++;
+                if (dot) decimals++;
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                return slowParse(buffer, start, end);
+            }
+        }
+        if (!anyDigit) {
+            return Double.NaN;
+        }
+        if (digits > 15 || decimals >= POW10.length) {
+            return slowParse(buffer, start, end);
+        }
+        double value = decimals == 0 ? mantissa : mantissa / POW10[decimals];
+        return negative ? -value : value;
+    }
+
+    private static double slowParse(MappedByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return parseText(new String(bytes, StandardCharsets.ISO_8859_1));
+    }
+
+    private static double parseText(String text) {
+        if (text.isEmpty()) return Double.NaN;
+        // Double.parseDouble acepta "NaN", "Infinity", "1d", "0x1p3": no son datos tabulares
+        char last = text.charAt(text.length() - 1);
+        if (!Character.isDigit(last) && last != '.') return Double.NaN;
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // ---- Columnas en construcción ----
+
+    private static final class ColumnBuilder {
+
+        static final int MISSING = 0;
+        static final int NUMBER = 1;
+        static final int TEXT = 2;
+
+        private final String name;
+        final boolean projected;
+        private double[] values;
+        private int[] codes;
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int size;
+
+        // Columnas no proyectadas: solo conteos (una fila aporta una celda)
+        private int numericCount;
+        private int textCount;
+        private int lastKind = MISSING;
+
+        ColumnBuilder(String name, boolean projected) {
+            this.name = name;
+            this.projected = projected;
+            if (projected) {
+                values = new double[1024];
+                codes = new int[1024];
+            }
+        }
+
+        void addNumber(double value) {
+            ensureCapacity();
+            values[size] = value;
+            codes[size++] = -1;
+        }
+
+        void addText(String text) {
+            ensureCapacity();
+            values[size] = Double.NaN;
+            codes[size++] = index.computeIfAbsent(text, t -> {
+                dictionary.add(t);
+                return dictionary.size() - 1;
+            });
+        }
+
+        void addMissing() {
+            if (!projected) {
+                count(MISSING);
+                return;
+            }
+            ensureCapacity();
+            values[size] = Double.NaN;
+            codes[size++] = -1;
+        }
+
+        void count(int kind) {
+            if (kind == NUMBER) numericCount++;
+            else if (kind == TEXT) textCount++;
+            lastKind = kind;
+            size++;
+        }
+
+        boolean lastIsMissing() {
+            if (!projected) return size > 0 && lastKind == MISSING;
+            return size > 0 && codes[size - 1] == -1 && Double.isNaN(values[size - 1]);
+        }
+
+        void truncate(int rows) {
+            if (!projected && size > rows) {
+                // Solo puede sobrar la celda de la fila incompleta
+                if (lastKind == NUMBER) numericCount--;
+                else if (lastKind == TEXT) textCount--;
+                lastKind = MISSING;
+            }
+            size = Math.min(size, rows);
+        }
+
+        private void ensureCapacity() {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+        }
+
+        ColumnarTable.Column build(int rows) {
+            if (!projected) {
+                return new ColumnarTable.Column(name, null, null, List.of(), numericCount, textCount);
+            }
+            int numeric = 0;
+            int text = 0;
+            for (int row = 0; row < rows; row++) {
+                if (!Double.isNaN(values[row])) numeric++;
+                else if (codes[row] >= 0) text++;
+            }
+            return new ColumnarTable.Column(name,
+                    Arrays.copyOf(values, rows), Arrays.copyOf(codes, rows),
+                    List.copyOf(dictionary), numeric, text);
+        }
+    }
+}
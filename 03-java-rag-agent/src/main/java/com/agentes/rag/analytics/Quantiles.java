@@ -0,0 +1,94 @@
+// ============================================================
+// analytics/Quantiles.java — Cuantiles sin ordenar todo
+// ============================================================
+// Quickselect: encontrar el k-ésimo valor es O(n) en promedio,
+// contra O(n log n) de ordenar el array completo.
+//
+// Para varios cuantiles se seleccionan en orden ascendente y
+// cada búsqueda arranca donde terminó la anterior: lo que quedó
+// a la izquierda ya es <= y no se vuelve a mirar.
+//
+// Interpolación lineal entre posiciones (igual que Excel
+// PERCENTILE.INC / numpy por defecto).
+// ============================================================
+
+package com.agentes.rag.analytics;
+
+import java.util.Arrays;
+
+public final class Quantiles {
+
+    private Quantiles() {}
+
+    /**
+     * Calcula varios cuantiles de los primeros n valores de data.
+     * REORDENA data (usar una copia si el orden importa).
+     *
+     * @param probabilities En [0, 1] y en orden ascendente
+     */
+    public static double[] of(double[] data, int n, double... probabilities) {
+        double[] result = new double[probabilities.length];
+        if (n == 0) return result;
+
+        int lo = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            double h = (n - 1) * probabilities[i];
+            int k = (int) Math.floor(h);
+            select(data, lo, n - 1, k);
+            lo = k;
+
+            double value = data[k];
+            if (h > k && k + 1 < n) {
+                // El siguiente en orden es el mínimo de la partición derecha
+                double next = data[k + 1];
+                for (int j = k + 2; j < n; j++) {
+                    if (data[j] < next) next = data[j];
+                }
+                value += (h - k) * (next - value);
+            }
+            result[i] = value;
+        }
+        return result;
+    }
+
+    /** Deja en data[k] el valor que tendría con data[lo..hi] ordenado */
+    static void select(double[] data, int lo, int hi, int k) {
+        // Si el pivote sale mal muchas veces seguidas, ordenar (peor caso O(n log n))
+        int budget = 2 * (32 - Integer.numberOfLeadingZeros(hi - lo + 1));
+        while (hi > lo) {
+            if (budget-- == 0) {
+                Arrays.sort(data, lo, hi + 1);
+                return;
+            }
+            int mid = lo + (hi - lo) / 2;
+            double pivot = medianOfThree(data[lo], data[mid], data[hi]);
+
+            // Partición de Hoare: [lo..j] <= pivot <= [i..hi]
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (data[i] < pivot) i++;
+                while (data[j] > pivot) j--;
+                if (i <= j) {
+                    double tmp = data[i];
+                    data[i] = data[j];
+                    data[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;     // j < k < i: data[k] == pivot, ya está en su lugar
+            }
+        }
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+}
@@ -0,0 +1,70 @@
+// ============================================================
+// analytics/RunningStats.java — Estadísticas en una pasada
+// ============================================================
+// Algoritmo de Welford: media y varianza en UNA pasada, sin
+// guardar los valores y numéricamente estable (no resta dos
+// sumas grandes como sum(x²)/n - media²).
+//
+// merge() combina dos acumuladores (Chan et al.), así cada hilo
+// agrega su rango de filas y al final se juntan los parciales.
+// ============================================================
+
+package com.agentes.rag.analytics;
+
+public final class RunningStats {
+
+    private long count;
+    private double mean;
+    private double m2;          // suma de cuadrados de las diferencias con la media
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        sum += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    /** Agrega los valores de otro acumulador a este */
+    public RunningStats merge(RunningStats other) {
+        if (other.count == 0) return this;
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            sum = other.sum;
+            min = other.min;
+            max = other.max;
+            return this;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public long count() { return count; }
+
+    public double mean() { return count == 0 ? 0 : mean; }
+
+    public double sum() { return sum; }
+
+    public double min() { return count == 0 ? 0 : min; }
+
+    public double max() { return count == 0 ? 0 : max; }
+
+    /** Desviación estándar poblacional (igual que la versión anterior de analyzeData) */
+    public double standardDeviation() {
+        return count == 0 ? 0 : Math.sqrt(m2 / count);
+    }
+}
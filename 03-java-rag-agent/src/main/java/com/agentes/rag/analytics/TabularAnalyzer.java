@@ -0,0 +1,271 @@
+// ============================================================
+// analytics/TabularAnalyzer.java — Análisis de CSV/TSV locales
+// ============================================================
+// Motor detrás del tool analyzeData cuando recibe un archivo:
+// el LLM pasa solo el nombre del archivo y la columna, y los
+// datos nunca pasan por su ventana de contexto.
+//
+//   1. Resuelve el archivo DENTRO de rag.documents-path
+//      (rechaza ../ y symlinks que salen del directorio)
+//   2. Lo parsea a columnas primitivas (CsvColumnReader), guardando
+//      solo la columna pedida y la de agrupación. Sin columna, elige
+//      la primera numérica mirando las primeras SAMPLE_ROWS filas
+//   3. Estadísticas en una pasada (RunningStats) y cuantiles
+//      por quickselect (Quantiles)
+//   4. Group-by en paralelo: cada core agrega un rango de filas
+//      y los parciales se combinan con RunningStats.merge
+// ============================================================
+
+package com.agentes.rag.analytics;
+
+import com.agentes.rag.observability.RagMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Service
+public class TabularAnalyzer {
+
+    private static final double[] PERCENTILES = {0.25, 0.5, 0.75, 0.9, 0.99};
+    private static final int ROWS_PER_TASK = 64 * 1024;
+    private static final int SAMPLE_ROWS = 1000;
+
+    private final Path documentsPath;
+    private final CsvColumnReader reader;
+    private final CsvColumnReader sampler = new CsvColumnReader(SAMPLE_ROWS);
+    private final int maxGroups;
+    private final RagMetrics metrics;
+
+    public TabularAnalyzer(
+            @Value("${rag.documents-path:./documents}") String documentsPath,
+            @Value("${app.analytics.max-rows:1000000}") int maxRows,
+            @Value("${app.analytics.max-groups:50}") int maxGroups,
+            RagMetrics metrics) {
+        this.documentsPath = Path.of(documentsPath).toAbsolutePath().normalize();
+        this.reader = new CsvColumnReader(maxRows);
+        this.maxGroups = maxGroups;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Analiza una columna numérica de un archivo tabular.
+     *
+     * @param file    Ruta relativa a rag.documents-path (.csv, .tsv o .tab)
+     * @param column  Columna a analizar; null = la primera numérica
+     * @param groupBy Columna por la que agrupar (opcional)
+     */
+    public Result analyze(String file, String column, String groupBy) throws IOException {
+        Path path = resolve(file);
+        String target = column == null || column.isBlank() ? firstNumeric(path) : column;
+        Set<String> projection = new HashSet<>();
+        if (target != null) projection.add(target);
+        if (groupBy != null && !groupBy.isBlank()) projection.add(groupBy);
+
+        ColumnarTable table = metrics.time("rag.analytics.duration",
+                () -> read(reader, path, projection), "operation", "parse");
+        return metrics.time("rag.analytics.duration",
+                () -> analyze(table, path.getFileName().toString(), target, groupBy), "operation", "aggregate");
+    }
+
+    /** Estadísticas de una serie de valores (el caso en que el LLM pasa los números) */
+    public static Summary summarize(double[] values) {
+        RunningStats stats = new RunningStats();
+        for (double value : values) {
+            stats.add(value);
+        }
+        double[] quantiles = Quantiles.of(values.clone(), values.length, PERCENTILES);
+        return new Summary(stats, percentiles(quantiles));
+    }
+
+    // ---- Análisis ----
+
+    /** Primera columna numérica según las primeras filas (null si no hay) */
+    private String firstNumeric(Path path) {
+        return read(sampler, path, Set.of()).columns().stream()
+                .filter(ColumnarTable.Column::isNumeric)
+                .map(ColumnarTable.Column::name)
+                .findFirst().orElse(null);
+    }
+
+    /** @param columnName null si el archivo no tiene columnas numéricas */
+    private Result analyze(ColumnarTable table, String fileName, String columnName, String groupBy) {
+        ColumnarTable.Column column = columnName == null ? null : table.column(columnName);
+        if (column == null || !column.isNumeric()) {
+            throw new IllegalArgumentException((columnName == null || columnName.isBlank()
+                    ? "El archivo no tiene columnas numéricas"
+                    : "'" + columnName + "' no es una columna numérica")
+                    + ". Columnas: " + describe(table));
+        }
+
+        double[] values = column.values();
+        RunningStats stats = aggregate(values, null, 1)[0];
+
+        // Copia compacta sin NaN: quickselect la reordena
+        double[] present = new double[(int) stats.count()];
+        int n = 0;
+        for (double value : values) {
+            if (!Double.isNaN(value)) present[n++] = value;
+        }
+        Summary summary = new Summary(stats, percentiles(Quantiles.of(present, n, PERCENTILES)));
+
+        List<Group> groups = List.of();
+        if (groupBy != null && !groupBy.isBlank()) {
+            ColumnarTable.Column key = table.column(groupBy);
+            if (key == null) {
+                throw new IllegalArgumentException("No existe la columna '" + groupBy + "'. Columnas: " + describe(table));
+            }
+            groups = groupBy(values, key.grouping());
+        }
+
+        return new Result(fileName, column.name(), table.rows(), summary, key(groupBy, table), groups, describe(table));
+    }
+
+    /** Agrupa por código y devuelve los grupos con más filas primero */
+    private List<Group> groupBy(double[] values, ColumnarTable.Grouping grouping) {
+        RunningStats[] perGroup = aggregate(values, grouping.codes(), grouping.labels().size());
+        List<Group> groups = new ArrayList<>();
+        for (int code = 0; code < perGroup.length; code++) {
+            RunningStats stats = perGroup[code];
+            if (stats.count() > 0) {
+                groups.add(new Group(grouping.labels().get(code), stats.count(), stats.sum(),
+                        stats.mean(), stats.min(), stats.max(), stats.standardDeviation()));
+            }
+        }
+        groups.sort(Comparator.comparingLong(Group::count).reversed().thenComparing(Group::key));
+        return groups.size() > maxGroups ? List.copyOf(groups.subList(0, maxGroups)) : groups;
+    }
+
+    /**
+     * Agrega los valores no vacíos por grupo, en paralelo por rangos de filas.
+     *
+     * @param codes Grupo de cada fila (-1 = sin grupo); null = un único grupo
+     */
+    static RunningStats[] aggregate(double[] values, int[] codes, int groupCount) {
+        int tasks = (values.length + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+        return IntStream.range(0, Math.max(tasks, 1))
+                .parallel()
+                .mapToObj(task -> {
+                    RunningStats[] partial = newStats(groupCount);
+                    int end = Math.min(values.length, (task + 1) * ROWS_PER_TASK);
+                    for (int row = task * ROWS_PER_TASK; row < end; row++) {
+                        double value = values[row];
+                        if (Double.isNaN(value)) continue;
+                        int group = codes == null ? 0 : codes[row];
+                        if (group >= 0) partial[group].add(value);
+                    }
+                    return partial;
+                })
+                .reduce((left, right) -> {
+                    for (int g = 0; g < left.length; g++) {
+                        left[g].merge(right[g]);
+                    }
+                    return left;
+                })
+                .orElseGet(() -> newStats(groupCount));
+    }
+
+    private static RunningStats[] newStats(int count) {
+        RunningStats[] stats = new RunningStats[count];
+        Arrays.setAll(stats, i -> new RunningStats());
+        return stats;
+    }
+
+    private static Map<String, Double> percentiles(double[] quantiles) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            result.put("p" + Math.round(PERCENTILES[i] * 100), quantiles[i]);
+        }
+        return result;
+    }
+
+    private static String key(String groupBy, ColumnarTable table) {
+        if (groupBy == null || groupBy.isBlank()) return null;
+        return table.column(groupBy).name();
+    }
+
+    private static String describe(ColumnarTable table) {
+        return table.columns().stream()
+                .map(c -> c.name() + (c.isNumeric() ? " (numérica)" : " (texto)"))
+                .collect(Collectors.joining(", "));
+    }
+
+    // ---- Archivos ----
+
+    /**
+     * Versión del archivo (fecha de modificación + tamaño), para que un
+     * resultado cacheado deje de valer cuando el CSV se edita.
+     */
+    public String fileVersion(String file) throws IOException {
+        Path path = resolve(file);
+        return Files.getLastModifiedTime(path).toMillis() + ":" + Files.size(path);
+    }
+
+    private Path resolve(String file) throws IOException {
+        if (file == null || file.isBlank()) {
+            throw new IllegalArgumentException("Falta el nombre del archivo");
+        }
+        String name = file.toLowerCase();
+        if (!name.endsWith(".csv") && !name.endsWith(".tsv") && !name.endsWith(".tab")) {
+            throw new IllegalArgumentException("Solo se analizan archivos .csv, .tsv o .tab");
+        }
+
+        Path path = documentsPath.resolve(file).normalize();
+        if (!path.startsWith(documentsPath) || !Files.isRegularFile(path)) {
+            throw new NoSuchFileException(file + " (en " + documentsPath.getFileName() + "/)");
+        }
+        // Symlinks: el destino real también tiene que estar dentro del directorio
+        if (!path.toRealPath().startsWith(documentsPath.toRealPath())) {
+            throw new NoSuchFileException(file + " (en " + documentsPath.getFileName() + "/)");
+        }
+        return path;
+    }
+
+    private static ColumnarTable read(CsvColumnReader reader, Path path, Set<String> columns) {
+        try {
+            return reader.read(path, columns);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo leer " + path.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    // ---- Resultados ----
+
+    public record Summary(
+            RunningStats stats,
+            Map<String, Double> percentiles     // p25, p50, p75, p90, p99
+    ) {}
+
+    public record Group(
+            String key,
+            long count,
+            double sum,
+            double mean,
+            double min,
+            double max,
+            double standardDeviation
+    ) {}
+
+    public record Result(
+            String file,
+            String column,
+            int rows,
+            Summary summary,
+            String groupBy,
+            List<Group> groups,
+            String columns          // todas las columnas, para que el LLM pueda repreguntar
+    ) {}
+}
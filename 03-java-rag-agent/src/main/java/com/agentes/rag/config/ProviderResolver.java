@@ -96,6 +96,54 @@ public class ProviderResolver {
         printBanner(config);
     }
 
+    /**
+     * Endpoint concreto de chat de un proveedor, usado por el routing
+     * multi-proveedor (ver routing/RoutingChatModel.java).
+     */
+    public record ProviderEndpoint(
+            String name,
+            String label,
+            String baseUrl,
+            String apiKey,
+            String chatModel,
+            String completionsPath
+    ) {}
+
+    /**
+     * Resuelve el endpoint de chat de un proveedor por nombre.
+     *
+     * Cada valor se puede sobreescribir con variables por proveedor
+     * ({NAME}_BASE_URL, {NAME}_API_KEY, {NAME}_MODEL, {NAME}_COMPLETIONS_PATH).
+     * Un nombre desconocido es válido si define {NAME}_BASE_URL, lo que
+     * permite apuntar a servidores stub locales en tests de carga.
+     */
+    public static ProviderEndpoint resolveEndpoint(String name) {
+        String key = name.trim().toLowerCase();
+        String prefix = key.toUpperCase().replace('-', '_') + "_";
+        ProviderConfig config = PROVIDERS.get(key);
+
+        String baseUrl = getProperty(prefix + "BASE_URL", config != null ? config.baseUrl : null);
+        if (baseUrl == null) {
+            throw new IllegalArgumentException(
+                    "Proveedor desconocido '" + name + "': definí " + prefix + "BASE_URL");
+        }
+
+        // La key genérica solo vale para el proveedor principal (PROVIDER)
+        boolean isMainProvider = key.equals(getProperty("PROVIDER", "ollama").toLowerCase());
+        String defaultKey = config != null && config.defaultApiKey != null
+                ? config.defaultApiKey
+                : (isMainProvider || config == null ? getProperty("OPENAI_API_KEY", "") : "");
+
+        return new ProviderEndpoint(
+                key,
+                config != null ? config.label : key,
+                baseUrl,
+                getProperty(prefix + "API_KEY", defaultKey),
+                getProperty(prefix + "MODEL", config != null ? config.chatModel : getProperty("MODEL", "llama3.1")),
+                getProperty(prefix + "COMPLETIONS_PATH",
+                        config != null ? config.completionsPath : "/v1/chat/completions"));
+    }
+
     /**
      * Retorna info del proveedor para el endpoint /api/info.
      */
@@ -104,7 +152,7 @@ public class ProviderResolver {
                 "provider", getProperty("app.provider.name", "unknown"),
                 "label", getProperty("app.provider.label", "unknown"),
                 "chatModel", getProperty("MODEL", "unknown"),
-                "embeddingModel", getProperty("EMBEDDING_MODEL", "unknown"),
+                "embeddingModel", isLocalEmbedding() ? "local-onnx" : getProperty("EMBEDDING_MODEL", "unknown"),
                 "baseUrl", getProperty("OPENAI_BASE_URL", "unknown")
         );
     }
@@ -118,24 +166,31 @@ public class ProviderResolver {
         System.out.println("╠════════════════════════════════════════════════════════╣");
         System.out.printf("║  Provider:    %-40s║%n", config.label);
         System.out.printf("║  Chat Model:  %-40s║%n", getProperty("MODEL", "?"));
-        System.out.printf("║  Embed Model: %-40s║%n", getProperty("EMBEDDING_MODEL", "?"));
+        System.out.printf("║  Embed Model: %-40s║%n", isLocalEmbedding()
+                ? "ONNX local (in-process)"
+                : getProperty("EMBEDDING_MODEL", "?"));
         System.out.printf("║  Chat URL:    %-40s║%n", truncate(getProperty("OPENAI_BASE_URL", "?"), 40));
-        if (config.embeddingBaseUrl != null) {
+        if (config.embeddingBaseUrl != null && !isLocalEmbedding()) {
             System.out.printf("║  Embed URL:   %-40s║%n",
                     truncate(getProperty("EMBEDDING_BASE_URL", "?"), 40));
         }
         System.out.println("╚════════════════════════════════════════════════════════╝");
 
-        if (config.embeddingNeedsOllama) {
+        if (config.embeddingNeedsOllama && !isLocalEmbedding()) {
             System.out.println();
             System.out.println("⚠️  " + config.label + " no soporta embeddings directamente.");
             System.out.println("   Los embeddings usarán Ollama local (http://localhost:11434).");
             System.out.println("   Asegurate de tener Ollama corriendo:");
             System.out.println("   → ollama pull nomic-embed-text");
+            System.out.println("   O usá embeddings in-process: EMBEDDING_MODE=local");
         }
         System.out.println();
     }
 
+    private static boolean isLocalEmbedding() {
+        return "local".equalsIgnoreCase(getProperty("EMBEDDING_MODE", "remote"));
+    }
+
     private static String getProperty(String key, String defaultValue) {
         String val = System.getProperty(key);
         if (val != null && !val.isBlank()) return val;
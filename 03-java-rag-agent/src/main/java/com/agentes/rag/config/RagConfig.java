@@ -13,10 +13,25 @@
 // MULTI-PROVIDER: El EmbeddingModel se crea con endpoint
 // independiente del chat, permitiendo usar un proveedor para
 // chat (ej: Groq) y otro para embeddings (ej: Ollama local).
+//
+// ROUTING: si app.routing.providers lista varios proveedores,
+// el ChatModel es un RoutingChatModel que elige el mejor en
+// cada llamada (ver routing/RoutingChatModel.java).
+//
+// VECTOR STORE: rag.store.type elige entre el SimpleVectorStore
+// de Spring AI (default) y CompactVectorStore (opcional: texto
+// comprimido off-heap, metadata deduplicada).
 // ============================================================
 
 package com.agentes.rag.config;
 
+import com.agentes.rag.observability.RagMetrics;
+import com.agentes.rag.observability.TimedEmbeddingModel;
+import com.agentes.rag.rag.LocalEmbeddingModel;
+import com.agentes.rag.routing.ProviderStats;
+import com.agentes.rag.routing.RoutingChatModel;
+import com.agentes.rag.store.CompactVectorStore;
+import io.micrometer.core.instrument.Gauge;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.document.MetadataMode;
 import org.springframework.ai.embedding.EmbeddingModel;
@@ -38,6 +53,8 @@ import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Configuration
@@ -51,6 +68,10 @@ public class RagConfig {
      * Este bean crea un OpenAiApi con la ruta correcta según
      * el proveedor configurado en ProviderResolver.
      *
+     * Con app.routing.providers (ej: "groq,openai") se crea un
+     * OpenAiChatModel por proveedor y se envuelven en un
+     * RoutingChatModel con routing por latencia y hedging opcional.
+     *
      * @Primary asegura que reemplace al auto-configurado.
      */
     @Bean
@@ -60,13 +81,48 @@ public class RagConfig {
             @Value("${spring.ai.openai.api-key}") String apiKey,
             @Value("${spring.ai.openai.chat.options.model}") String model,
             @Value("${spring.ai.openai.chat.options.temperature:0.7}") double temperature,
+            @Value("${app.routing.providers:}") String routingProviders,
+            @Value("${app.routing.window-size:100}") int windowSize,
+            @Value("${app.routing.hedge.enabled:false}") boolean hedgeEnabled,
+            @Value("${app.routing.hedge.min-delay-ms:50}") long hedgeMinDelayMs,
+            @Value("${app.routing.hedge.initial-delay-ms:2000}") long hedgeInitialDelayMs,
+            @Value("${app.routing.explore-ratio:0.05}") double exploreRatio,
             FunctionCallbackContext functionCallbackContext,
             List<FunctionCallback> toolCallbacks,
             RetryTemplate retryTemplate,
             ResponseErrorHandler responseErrorHandler) {
 
-        // Path correcto según proveedor (GitHub: /chat/completions, resto: /v1/chat/completions)
-        String completionsPath = System.getProperty("CHAT_COMPLETIONS_PATH", "/v1/chat/completions");
+        List<String> names = Arrays.stream(routingProviders.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+
+        if (names.isEmpty()) {
+            // Path correcto según proveedor (GitHub: /chat/completions, resto: /v1/chat/completions)
+            String completionsPath = System.getProperty("CHAT_COMPLETIONS_PATH", "/v1/chat/completions");
+            return openAiChatModel(baseUrl, apiKey, completionsPath, model, temperature,
+                    functionCallbackContext, toolCallbacks, retryTemplate, responseErrorHandler);
+        }
+
+        List<RoutingChatModel.Provider> providers = new ArrayList<>();
+        for (String name : names) {
+            var endpoint = ProviderResolver.resolveEndpoint(name);
+            var chatModel = openAiChatModel(
+                    endpoint.baseUrl(), endpoint.apiKey(), endpoint.completionsPath(),
+                    endpoint.chatModel(), temperature,
+                    functionCallbackContext, toolCallbacks, retryTemplate, responseErrorHandler);
+            providers.add(new RoutingChatModel.Provider(
+                    endpoint.name(), chatModel, new ProviderStats(windowSize)));
+        }
+        return new RoutingChatModel(providers, hedgeEnabled, hedgeMinDelayMs, hedgeInitialDelayMs, exploreRatio);
+    }
+
+    private static OpenAiChatModel openAiChatModel(
+            String baseUrl, String apiKey, String completionsPath, String model, double temperature,
+            FunctionCallbackContext functionCallbackContext,
+            List<FunctionCallback> toolCallbacks,
+            RetryTemplate retryTemplate,
+            ResponseErrorHandler responseErrorHandler) {
 
         var openAiApi = new OpenAiApi(
                 baseUrl, apiKey, completionsPath, "/v1/embeddings",
@@ -85,34 +141,84 @@ public class RagConfig {
      * Esto permite usar un proveedor para chat (Groq, Gemini)
      * y otro para embeddings (Ollama local, OpenAI).
      *
+     * Con app.embedding.mode=local el modelo corre in-process con
+     * ONNX Runtime (ver rag/LocalEmbeddingModel.java): sin HTTP ni Ollama.
+     *
+     * En ambos modos se envuelve en TimedEmbeddingModel para medir
+     * cada llamada (rag.embedding.duration).
+     *
      * @Primary asegura que este bean tenga prioridad sobre
      * el auto-configurado por spring-ai-openai-spring-boot-starter.
      */
     @Bean
     @Primary
     public EmbeddingModel embeddingModel(
+            @Value("${app.embedding.mode:remote}") String mode,
             @Value("${app.embedding.base-url}") String baseUrl,
             @Value("${app.embedding.api-key}") String apiKey,
-            @Value("${app.embedding.model}") String model) {
+            @Value("${app.embedding.model}") String model,
+            @Value("${app.embedding.local.model-uri}") String localModelUri,
+            @Value("${app.embedding.local.tokenizer-uri}") String localTokenizerUri,
+            @Value("${app.embedding.local.cache-dir}") String localCacheDir,
+            @Value("${app.embedding.local.intra-op-threads:0}") int intraOpThreads,
+            @Value("${app.embedding.local.batch-size:32}") int batchSize,
+            @Value("${app.embedding.local.warmup-iterations:3}") int warmupIterations,
+            RagMetrics metrics) {
+
+        if ("local".equalsIgnoreCase(mode)) {
+            return new TimedEmbeddingModel(new LocalEmbeddingModel(localModelUri, localTokenizerUri, localCacheDir,
+                    intraOpThreads, batchSize, warmupIterations), metrics);
+        }
 
         var openAiApi = new OpenAiApi(baseUrl, apiKey);
 
-        return new OpenAiEmbeddingModel(
+        return new TimedEmbeddingModel(new OpenAiEmbeddingModel(
                 openAiApi,
                 MetadataMode.EMBED,
                 OpenAiEmbeddingOptions.builder()
                         .withModel(model)
                         .build()
-        );
+        ), metrics);
     }
 
     /**
      * Vector Store en memoria para desarrollo.
      * En producción: PgVector, Pinecone, Qdrant, Chroma, etc.
      * (ver docs/summary.md#vector-store-y-similitud-coseno)
+     *
+     * "compact" (CompactVectorStore) ocupa bastante menos heap por
+     * chunk y sus búsquedas no se bloquean durante una ingesta
+     * (segmentos inmutables); "simple" es el SimpleVectorStore de Spring AI.
      */
     @Bean
-    public VectorStore vectorStore(EmbeddingModel embeddingModel) {
-        return new SimpleVectorStore(embeddingModel);
+    public VectorStore vectorStore(
+            EmbeddingModel embeddingModel,
+            @Value("${rag.store.type:simple}") String type,
+            @Value("${rag.store.embedding-batch-size:64}") int embeddingBatchSize,
+            @Value("${rag.store.text-block-kb:32}") int textBlockKb,
+            @Value("${rag.store.compression-level:1}") int compressionLevel,
+            @Value("${rag.store.segment-rows:4096}") int segmentRows,
+            @Value("${rag.store.max-segments:8}") int maxSegments,
+            RagMetrics metrics) {
+
+        if ("simple".equalsIgnoreCase(type)) {
+            return new SimpleVectorStore(embeddingModel);
+        }
+
+        var store = new CompactVectorStore(embeddingModel, embeddingBatchSize, textBlockKb * 1024, compressionLevel,
+                segmentRows, maxSegments);
+        Gauge.builder("rag.vectorstore.bytes", store, s -> s.stats().textRawBytes())
+                .tag("area", "text-raw").register(metrics.registry());
+        Gauge.builder("rag.vectorstore.bytes", store, s -> s.stats().textStoredBytes())
+                .tag("area", "text-stored").register(metrics.registry());
+        Gauge.builder("rag.vectorstore.bytes", store, s -> s.stats().textReservedBytes())
+                .tag("area", "text-reserved").register(metrics.registry());
+        Gauge.builder("rag.vectorstore.bytes", store, s -> s.stats().vectorBytes())
+                .tag("area", "vectors").register(metrics.registry());
+        Gauge.builder("rag.vectorstore.metadata.maps", store, s -> s.stats().metadataMaps())
+                .register(metrics.registry());
+        Gauge.builder("rag.vectorstore.segments", store, s -> s.stats().segments())
+                .register(metrics.registry());
+        return store;
     }
 }
@@ -0,0 +1,213 @@
+// ============================================================
+// config/StartupWarmup.java — Warm-up antes de recibir tráfico
+// ============================================================
+// Con lazy-initialization (perfil faststart) el contexto levanta
+// rápido, pero el primer request pagaría todo: crear los beans,
+// cargar el modelo de embeddings, abrir conexiones y el JIT en
+// frío. Este componente hace ese trabajo en un hilo de fondo
+// apenas la app está lista:
+//
+//   1. beans:        controladores REST y sus dependencias
+//   2. embedding:    N embeddings (modelo local cargado, conexión
+//                    HTTP al endpoint remoto abierta)
+//   3. vector-search: N búsquedas por RetrievalService (JIT del
+//                    producto punto y del armado de Documents)
+//   4. chat-connection: una completion de 1 token por el MISMO
+//                    ChatModel que atiende los requests (su RestClient
+//                    queda con DNS, TLS y el pool de conexiones listos);
+//                    con routing, una por proveedor. Cada llamada
+//                    tiene un tope para que un endpoint colgado no
+//                    frene el warm-up
+//
+// Es un HealthIndicator: incluido en el grupo readiness
+// (application-faststart.yml), /actuator/health/readiness da 503
+// hasta que termina el warm-up o vence app.warmup.timeout-seconds.
+// Un paso que falla se reporta y no frena a los demás.
+// ============================================================
+
+package com.agentes.rag.config;
+
+import com.agentes.rag.observability.StartupTimeline;
+import com.agentes.rag.rag.RetrievalService;
+import com.agentes.rag.routing.RoutingChatModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Component
+@Lazy(false)     // con lazy-initialization global igual tiene que escuchar ApplicationReady
+public class StartupWarmup implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    /** Tope por completion de warm-up (la llamada sigue en su hilo, el warm-up no la espera) */
+    private static final Duration CHAT_TIMEOUT = Duration.ofSeconds(10);
+
+    private final boolean enabled;
+    private final int iterations;
+    private final Duration timeout;
+    private final ObjectProvider<ChatModel> chatModel;
+    private final ApplicationContext context;
+    private final ObjectProvider<EmbeddingModel> embeddingModel;
+    private final ObjectProvider<RetrievalService> retrievalService;
+
+    private final List<Step> steps = new CopyOnWriteArrayList<>();
+    private volatile State state;
+    private volatile Instant startedAt;
+    private volatile long totalMillis = -1;
+
+    public enum State { DISABLED, PENDING, RUNNING, DONE }
+
+    public StartupWarmup(
+            @Value("${app.warmup.enabled:false}") boolean enabled,
+            @Value("${app.warmup.iterations:3}") int iterations,
+            @Value("${app.warmup.timeout-seconds:120}") long timeoutSeconds,
+            ApplicationContext context,
+            ObjectProvider<ChatModel> chatModel,
+            ObjectProvider<EmbeddingModel> embeddingModel,
+            ObjectProvider<RetrievalService> retrievalService) {
+        this.enabled = enabled;
+        this.iterations = Math.max(1, iterations);
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+        this.context = context;
+        this.chatModel = chatModel;
+        this.embeddingModel = embeddingModel;
+        this.retrievalService = retrievalService;
+        this.state = enabled ? State.PENDING : State.DISABLED;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled) return;
+        Thread.ofVirtual().name("startup-warmup").start(this::run);
+    }
+
+    /** Estado y duración de cada paso (para GET /api/startup) */
+    public Status status() {
+        return new Status(state, totalMillis, List.copyOf(steps));
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = switch (state) {
+            case DISABLED, DONE -> Health.up();
+            case PENDING, RUNNING -> timedOut() ? Health.up().withDetail("timedOut", true) : Health.outOfService();
+        };
+        return health.withDetail("state", state).build();
+    }
+
+    private void run() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+
+        step("beans", () -> context.getBeansWithAnnotation(RestController.class).size() + " controladores");
+        step("embedding", () -> {
+            EmbeddingModel model = embeddingModel.getObject();
+            int dimensions = 0;
+            for (int i = 0; i < iterations; i++) {
+                dimensions = model.embed("warm-up del modelo de embeddings " + i).length;
+            }
+            return dimensions + " dimensiones";
+        });
+        step("vector-search", () -> {
+            RetrievalService retrieval = retrievalService.getObject();
+            int hits = 0;
+            for (int i = 0; i < iterations; i++) {
+                hits = retrieval.search("warm-up de la búsqueda " + i, 5, 0.0).size();
+            }
+            return hits + " resultados";
+        });
+        step("chat-connection", () -> {
+            ChatModel model = chatModel.getObject();
+            if (!(model instanceof RoutingChatModel routing)) {
+                return warmChat(model);
+            }
+            // Directo a cada proveedor: no pasa por el ranking ni ensucia sus estadísticas
+            List<String> results = new ArrayList<>();
+            for (RoutingChatModel.Provider provider : routing.providers()) {
+                String result;
+                try {
+                    result = warmChat(provider.model());
+                } catch (Exception e) {
+                    result = e.getClass().getSimpleName() + ": " + e.getMessage();
+                    log.warn("⚠️ Warm-up del proveedor '{}' falló: {}", provider.name(), result);
+                }
+                results.add(provider.name() + " " + result);
+            }
+            return String.join(", ", results);
+        });
+
+        totalMillis = Duration.between(startedAt, Instant.now()).toMillis();
+        state = State.DONE;
+
+        StartupTimeline.Report report = StartupTimeline.report();
+        log.info("🚀 Warm-up completo en {} ms (app lista en {} ms desde el arranque del proceso): {}",
+                totalMillis, report.readyMillis(), steps);
+    }
+
+    private void step(String name, StepAction action) {
+        Instant start = Instant.now();
+        String result;
+        boolean ok = true;
+        try {
+            result = action.run();
+        } catch (Exception e) {
+            ok = false;
+            result = e.getClass().getSimpleName() + ": " + e.getMessage();
+            log.warn("⚠️ Warm-up '{}' falló: {}", name, result);
+        }
+        steps.add(new Step(name, ok, Duration.between(start, Instant.now()).toMillis(), result));
+    }
+
+    /** Completion de 1 token por el cliente HTTP real del modelo */
+    private static String warmChat(ChatModel model) throws Exception {
+        var prompt = new Prompt("ping", OpenAiChatOptions.builder().withMaxTokens(1).build());
+        CompletableFuture<Void> call = CompletableFuture.runAsync(() -> model.call(prompt),
+                runnable -> Thread.ofVirtual().name("startup-warmup-chat").start(runnable));
+        try {
+            call.get(CHAT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (TimeoutException e) {
+            throw new TimeoutException("sin respuesta en " + CHAT_TIMEOUT.toSeconds() + " s");
+        }
+        return "ok";
+    }
+
+    private boolean timedOut() {
+        Instant start = startedAt;
+        return start != null && Duration.between(start, Instant.now()).compareTo(timeout) > 0;
+    }
+
+    @FunctionalInterface
+    private interface StepAction {
+        String run() throws Exception;
+    }
+
+    public record Step(String name, boolean ok, long millis, String result) {}
+
+    public record Status(State state, long totalMillis, List<Step> steps) {}
+}
@@ -0,0 +1,125 @@
+// ============================================================
+// observability/JfrRecorder.java — Grabación JFR de la app
+// ============================================================
+// Maneja UNA grabación de Flight Recorder con la configuración
+// "default" del JDK (overhead <1%) + los eventos de RagEvents.
+//
+// Con app.jfr.always-on=true arranca al iniciar la app y queda
+// como buffer circular (max-age / max-size): ante un request
+// lento se hace dump() y se analiza lo que pasó alrededor.
+//
+// Las configuraciones del JDK graban las variables de entorno y
+// las System properties iniciales; ProviderResolver deja ahí las
+// API keys, así que esos dos eventos se desactivan siempre.
+// ============================================================
+
+package com.agentes.rag.observability;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+@Component
+@Lazy(false)     // always-on tiene que arrancar con el contexto, aun con lazy-initialization
+public class JfrRecorder implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(JfrRecorder.class);
+
+    /** Eventos que copiarían secretos (API keys) al .jfr */
+    private static final List<String> SENSITIVE_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty");
+
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+    private Recording recording;
+
+    public JfrRecorder(
+            @Value("${app.jfr.always-on:false}") boolean alwaysOn,
+            @Value("${app.jfr.max-age-minutes:30}") long maxAgeMinutes,
+            @Value("${app.jfr.max-size-mb:100}") long maxSizeMb) {
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        if (alwaysOn) {
+            start("default");
+        }
+    }
+
+    /**
+     * Inicia la grabación (si ya hay una en curso, la reemplaza).
+     *
+     * @param settings "default" (continua, bajo overhead) o "profile" (más detalle)
+     */
+    public synchronized RecordingInfo start(String settings) {
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            // Antes de stop(): un nombre inválido no corta la grabación en curso
+            throw new IllegalArgumentException("Configuración JFR inválida '" + settings + "': " + e.getMessage(), e);
+        }
+        stop();
+        recording = new Recording(configuration);
+        recording.setName("rag-agent");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeBytes);
+        SENSITIVE_EVENTS.forEach(recording::disable);
+        RagEvents.ALL.forEach(event -> recording.enable(event).withoutThreshold());
+        recording.start();
+        log.info("🎥 Grabación JFR iniciada (settings={}, maxAge={}, maxSize={}MB)",
+                settings, maxAge, maxSizeBytes / (1024 * 1024));
+        return info();
+    }
+
+    /**
+     * Copia el contenido actual de la grabación a un archivo .jfr temporal,
+     * sin detenerla. Quien llama borra el archivo cuando termina de usarlo.
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("No hay una grabación JFR en curso: iniciala con /api/profiling/jfr/start");
+        }
+        Path file = Files.createTempFile("rag-agent-", ".jfr");
+        recording.dump(file);
+        return file;
+    }
+
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    public synchronized RecordingInfo info() {
+        if (recording == null) {
+            return new RecordingInfo("STOPPED", null, 0);
+        }
+        return new RecordingInfo(recording.getState().name(),
+                String.valueOf(recording.getStartTime()), recording.getSize());
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    public record RecordingInfo(
+            String state,
+            String startedAt,
+            long sizeBytes
+    ) {}
+}
@@ -0,0 +1,83 @@
+// ============================================================
+// observability/ProfilingController.java — API de JFR
+// ============================================================
+//   POST /api/profiling/jfr/start?settings=default|profile
+//   GET  /api/profiling/jfr            estado de la grabación
+//   GET  /api/profiling/jfr/dump       descarga un .jfr (sin detener);
+//                                      el temporal se borra al terminar de enviarlo
+//   POST /api/profiling/jfr/stop
+//
+// Apagado por defecto: cualquiera con acceso a la API podría
+// grabar y descargar el estado interno de la JVM. Se habilita con
+// app.jfr.endpoints-enabled=true (JFR_ENDPOINTS), idealmente solo
+// detrás de una red interna o un proxy con autenticación.
+// ============================================================
+
+package com.agentes.rag.observability;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@RestController
+@RequestMapping("/api/profiling/jfr")
+@ConditionalOnProperty(name = "app.jfr.endpoints-enabled", havingValue = "true")
+public class ProfilingController {
+
+    private final JfrRecorder recorder;
+
+    public ProfilingController(JfrRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @GetMapping
+    public ResponseEntity<JfrRecorder.RecordingInfo> status() {
+        return ResponseEntity.ok(recorder.info());
+    }
+
+    @PostMapping("/start")
+    public ResponseEntity<JfrRecorder.RecordingInfo> start(
+            @RequestParam(defaultValue = "default") String settings) {
+        try {
+            return ResponseEntity.ok(recorder.start(settings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/dump")
+    public ResponseEntity<StreamingResponseBody> dump() throws IOException {
+        Path file;
+        try {
+            file = recorder.dump();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();     // no hay grabación en curso
+        }
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .body(body);
+    }
+
+    @PostMapping("/stop")
+    public ResponseEntity<JfrRecorder.RecordingInfo> stop() {
+        recorder.stop();
+        return ResponseEntity.ok(recorder.info());
+    }
+}
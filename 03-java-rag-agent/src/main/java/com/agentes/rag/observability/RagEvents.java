@@ -0,0 +1,148 @@
+// ============================================================
+// observability/RagEvents.java — Eventos de Java Flight Recorder
+// ============================================================
+// Micrometer da agregados (p95 de la última hora); JFR permite
+// explicar UN request lento: cada evento lleva su request ID y
+// queda en la misma grabación que GC, allocations y locks.
+//
+//   com.agentes.rag.Retrieval       búsqueda en el vector store
+//   com.agentes.rag.Embedding       llamada al modelo de embeddings
+//   com.agentes.rag.LlmCall         llamada al modelo de chat
+//   com.agentes.rag.ToolInvocation  ejecución de un tool
+//   com.agentes.rag.IngestionBatch  escritura de chunks al índice
+//
+// Un evento deshabilitado cuesta un chequeo de flag: se puede
+// dejar una grabación continua en producción (ver JfrRecorder).
+// Ver en JDK Mission Control o con: jfr print --events 'com.agentes.rag.*'
+// ============================================================
+
+package com.agentes.rag.observability;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+public final class RagEvents {
+
+    private static final String CATEGORY = "RAG Agent";
+
+    /** Todos los eventos propios, para habilitarlos en una grabación */
+    public static final List<Class<? extends Event>> ALL = List.of(
+            Retrieval.class, Embedding.class, LlmCall.class, ToolInvocation.class, IngestionBatch.class);
+
+    private RagEvents() {}
+
+    /**
+     * Ejecuta una llamada al modelo de chat dentro de un evento LlmCall.
+     *
+     * @param purpose  "generation" (respuesta del agente) o "router" (orquestador)
+     * @param messages Mensajes enviados en el prompt
+     */
+    public static ChatResponse llmCall(String purpose, int messages, Supplier<ChatResponse> call) {
+        var event = new LlmCall();
+        event.begin();
+        ChatResponse response = null;
+        String outcome = "error";
+        try {
+            response = call.get();
+            outcome = "ok";
+            return response;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.requestId = RequestContext.requestId();
+                event.purpose = purpose;
+                event.messages = messages;
+                event.outcome = outcome;
+                if (response != null) {
+                    event.toolCalls = response.hasToolCalls()
+                            ? response.getResult().getOutput().getToolCalls().size() : 0;
+                    if (response.getMetadata() != null) {
+                        event.model = response.getMetadata().getModel();
+                        Usage usage = response.getMetadata().getUsage();
+                        if (usage != null && usage.getPromptTokens() != null) event.promptTokens = usage.getPromptTokens();
+                        if (usage != null && usage.getGenerationTokens() != null) event.completionTokens = usage.getGenerationTokens();
+                    }
+                }
+                event.commit();
+            }
+        }
+    }
+
+    @Name("com.agentes.rag.Retrieval")
+    @Label("Retrieval")
+    @Description("Búsqueda semántica en el vector store")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class Retrieval extends Event {
+        @Label("Request ID") public String requestId;
+        @Label("Query Length") public int queryLength;
+        @Label("Top K") public int topK;
+        @Label("Similarity Threshold") public double threshold;
+        @Label("Chunks Returned") public int chunks;
+        @Label("Outcome") public String outcome;
+    }
+
+    @Name("com.agentes.rag.Embedding")
+    @Label("Embedding")
+    @Description("Llamada al modelo de embeddings")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class Embedding extends Event {
+        @Label("Request ID") public String requestId;
+        @Label("Texts") public int texts;
+        @Label("Characters") public long characters;
+        @Label("Outcome") public String outcome;
+    }
+
+    @Name("com.agentes.rag.LlmCall")
+    @Label("LLM Call")
+    @Description("Llamada al modelo de chat (generación o router)")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class LlmCall extends Event {
+        @Label("Request ID") public String requestId;
+        @Label("Purpose") public String purpose;
+        @Label("Model") public String model;
+        @Label("Messages") public int messages;
+        @Label("Prompt Tokens") public long promptTokens;
+        @Label("Completion Tokens") public long completionTokens;
+        @Label("Tool Calls") public int toolCalls;
+        @Label("Outcome") public String outcome;
+    }
+
+    @Name("com.agentes.rag.ToolInvocation")
+    @Label("Tool Invocation")
+    @Description("Ejecución de un tool pedido por el LLM")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class ToolInvocation extends Event {
+        @Label("Request ID") public String requestId;
+        @Label("Tool") public String tool;
+        @Label("Arguments Length") public int argumentsLength;
+        @Label("Result Length") public int resultLength;
+        @Label("Cached") public boolean cached;
+        @Label("Outcome") public String outcome;
+    }
+
+    @Name("com.agentes.rag.IngestionBatch")
+    @Label("Ingestion Batch")
+    @Description("Embeddings y escritura de un lote de chunks al vector store")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static class IngestionBatch extends Event {
+        @Label("Request ID") public String requestId;
+        @Label("Chunks") public int chunks;
+        @Label("Characters") public long characters;
+        @Label("Outcome") public String outcome;
+    }
+}
@@ -0,0 +1,102 @@
+// ============================================================
+// observability/RagMetrics.java — Métricas Micrometer del pipeline
+// ============================================================
+// Punto único para registrar métricas del pipeline RAG. Se
+// exponen en /actuator/prometheus (y /actuator/metrics):
+//
+//   rag.stage.duration{stage}          router, retrieval, llm, tools (por request)
+//   rag.embedding.duration{operation}  llamadas al EmbeddingModel
+//   rag.retrieval.search.duration      similaritySearch (incluye embedding de la query)
+//   rag.retrieval.format.duration      armado del contexto
+//   rag.tool.duration{tool}            cada tool call ejecutado
+//   rag.ingestion.duration{mode}       ingestas completas
+//   rag.llm.tokens{model,type}         tokens de prompt / completion
+//   rag.vectorstore.chunks             chunks almacenados (gauge)
+//   cache.gets{cache,result}           hit/miss de tool-results y request-coalescing
+//
+// Los timers publican histogramas para calcular p50/p95/p99
+// en Prometheus (histogram_quantile).
+// ============================================================
+
+package com.agentes.rag.observability;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+@Component
+public class RagMetrics {
+
+    private final MeterRegistry registry;
+
+    public RagMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    /** StageTimer de un request que además publica cada etapa en rag.stage.duration */
+    public StageTimer stageTimer() {
+        return new StageTimer(this);
+    }
+
+    public Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public <T> T time(String name, Supplier<T> work, String... tags) {
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            return work.get();
+        } finally {
+            sample.stop(timer(name, tags));
+        }
+    }
+
+    public Counter counter(String name, String... tags) {
+        return Counter.builder(name).tags(tags).register(registry);
+    }
+
+    /** Hit/miss de un cache con la convención de Micrometer (cache.gets{result}) */
+    public <T> void cacheGets(String cache, T source, ToDoubleFunction<T> hits, ToDoubleFunction<T> misses) {
+        FunctionCounter.builder("cache.gets", source, hits)
+                .tags("cache", cache, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", source, misses)
+                .tags("cache", cache, "result", "miss")
+                .register(registry);
+    }
+
+    /** Tokens de prompt/completion informados por el proveedor */
+    public void recordUsage(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) return;
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null) return;
+
+        String model = response.getMetadata().getModel();
+        if (model == null || model.isBlank()) model = "unknown";
+        if (usage.getPromptTokens() != null) {
+            counter("rag.llm.tokens", "model", model, "type", "prompt").increment(usage.getPromptTokens());
+        }
+        if (usage.getGenerationTokens() != null) {
+            counter("rag.llm.tokens", "model", model, "type", "completion").increment(usage.getGenerationTokens());
+        }
+    }
+
+    void recordStage(String stage, long elapsedNanos) {
+        timer("rag.stage.duration", "stage", stage).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
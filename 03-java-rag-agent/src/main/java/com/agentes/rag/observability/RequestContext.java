@@ -0,0 +1,54 @@
+// ============================================================
+// observability/RequestContext.java — Request ID del hilo actual
+// ============================================================
+// RequestIdFilter fija un ID por request HTTP (header
+// X-Request-Id o uno nuevo). Los eventos JFR y los logs (MDC
+// "requestId") lo usan para correlacionar todo lo que pasó
+// dentro de un mismo turno del agente.
+//
+// Las tareas que saltan de hilo (ej: tools en paralelo) deben
+// propagarlo con wrap().
+// ============================================================
+
+package com.agentes.rag.observability;
+
+import org.slf4j.MDC;
+
+import java.util.function.Supplier;
+
+public final class RequestContext {
+
+    private static final ThreadLocal<String> REQUEST_ID = new ThreadLocal<>();
+
+    private RequestContext() {}
+
+    /** ID del request actual, o "-" fuera de un request */
+    public static String requestId() {
+        String id = REQUEST_ID.get();
+        return id != null ? id : "-";
+    }
+
+    public static void set(String requestId) {
+        REQUEST_ID.set(requestId);
+        MDC.put("requestId", requestId);
+    }
+
+    public static void clear() {
+        REQUEST_ID.remove();
+        MDC.remove("requestId");
+    }
+
+    /** Envuelve una tarea para que corra con el request ID del hilo que la crea */
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        String requestId = REQUEST_ID.get();
+        return () -> {
+            if (requestId == null) return task.get();
+            set(requestId);
+            try {
+                return task.get();
+            } finally {
+                clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+// ============================================================
+// observability/StageTimer.java — Tiempos por etapa de un request
+// ============================================================
+// Acumula cuánto tarda cada etapa del pipeline (retrieval,
+// llm, tools, router...) dentro de UN request. El resultado
+// viaja en la respuesta JSON ("timings") para que el harness
+// de carga pueda desglosar la latencia por etapa, y cada etapa
+// se publica también en Micrometer (rag.stage.duration).
+// ============================================================
+
+package com.agentes.rag.observability;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class StageTimer {
+
+    private final Map<String, Long> nanosByStage = new LinkedHashMap<>();
+    private final RagMetrics metrics;   // null = solo acumula, sin Micrometer
+
+    public StageTimer() {
+        this(null);
+    }
+
+    StageTimer(RagMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Ejecuta la etapa y suma su duración (las etapas repetidas se acumulan) */
+    public <T> T time(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            add(stage, System.nanoTime() - start);
+        }
+    }
+
+    public void add(String stage, long elapsedNanos) {
+        synchronized (this) {
+            nanosByStage.merge(stage, elapsedNanos, Long::sum);
+        }
+        if (metrics != null) {
+            metrics.recordStage(stage, elapsedNanos);
+        }
+    }
+
+    /** Tiempos en milisegundos, en el orden en que aparecieron las etapas */
+    public synchronized Map<String, Double> millis() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        nanosByStage.forEach((stage, nanos) -> result.put(stage, nanos / 1_000_000.0));
+        return result;
+    }
+}
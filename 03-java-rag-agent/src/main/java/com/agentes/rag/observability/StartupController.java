@@ -0,0 +1,55 @@
+// ============================================================
+// observability/StartupController.java — API de arranque
+// ============================================================
+//   GET /api/startup   fases del arranque, beans más lentos,
+//                      estado del warm-up y modo (AOT, CDS, lazy)
+// ============================================================
+
+package com.agentes.rag.observability;
+
+import com.agentes.rag.config.StartupWarmup;
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+
+@RestController
+@RequestMapping("/api/startup")
+public class StartupController {
+
+    private final StartupWarmup warmup;
+    private final boolean lazyInitialization;
+
+    public StartupController(
+            StartupWarmup warmup,
+            @Value("${spring.main.lazy-initialization:false}") boolean lazyInitialization) {
+        this.warmup = warmup;
+        this.lazyInitialization = lazyInitialization;
+    }
+
+    @GetMapping
+    public ResponseEntity<StartupInfo> startup() {
+        boolean cds = ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(argument -> argument.startsWith("-XX:SharedArchiveFile"));
+        return ResponseEntity.ok(new StartupInfo(
+                new Mode(AotDetector.useGeneratedArtifacts(), cds, lazyInitialization),
+                StartupTimeline.report(),
+                warmup.status()));
+    }
+
+    public record Mode(
+            boolean aot,                // contexto pre-procesado (-Dspring.aot.enabled=true)
+            boolean cds,                // archivo AppCDS (-XX:SharedArchiveFile)
+            boolean lazyInitialization
+    ) {}
+
+    public record StartupInfo(
+            Mode mode,
+            StartupTimeline.Report timeline,
+            StartupWarmup.Status warmup
+    ) {}
+}
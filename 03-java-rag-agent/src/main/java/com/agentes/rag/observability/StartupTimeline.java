@@ -0,0 +1,98 @@
+// ============================================================
+// observability/StartupTimeline.java — Desglose del arranque
+// ============================================================
+// Mide en qué se va el tiempo hasta que la app está lista:
+//   - jvm:               desde que arrancó el proceso hasta main()
+//                        (carga de clases: lo que acelera CDS)
+//   - env-loader, provider-resolver: los pasos previos a Spring
+//   - spring.*:          fases de SpringApplication y el refresh
+//                        del contexto (lo que acelera AOT + lazy)
+//   - beans más lentos:  instanciación, incluye sus dependencias
+//
+// Es estático porque empieza a medir antes de que exista el
+// contexto de Spring. Lo expone GET /api/startup.
+// ============================================================
+
+package com.agentes.rag.observability;
+
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline.TimelineEvent;
+import org.springframework.core.metrics.ApplicationStartup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public final class StartupTimeline {
+
+    /** Eventos de arranque que guarda Spring (un contexto chico genera ~2000) */
+    private static final int CAPACITY = 10_000;
+    private static final int SLOWEST_BEANS = 10;
+
+    private static final Instant PROCESS_START = ProcessHandle.current().info().startInstant().orElse(Instant.now());
+    private static final Instant MAIN_START = Instant.now();
+    private static final BufferingApplicationStartup APPLICATION_STARTUP = new BufferingApplicationStartup(CAPACITY);
+    private static final List<Phase> PHASES = new CopyOnWriteArrayList<>();
+
+    private StartupTimeline() {}
+
+    /** ApplicationStartup para SpringApplication: registra fases y beans */
+    public static ApplicationStartup applicationStartup() {
+        return APPLICATION_STARTUP;
+    }
+
+    /** Mide un paso previo a Spring (ej: EnvLoader) */
+    public static void time(String phase, Runnable step) {
+        Instant start = Instant.now();
+        step.run();
+        PHASES.add(new Phase(phase, Duration.between(start, Instant.now()).toMillis()));
+    }
+
+    public static Report report() {
+        List<Phase> phases = new ArrayList<>();
+        phases.add(new Phase("jvm", Duration.between(PROCESS_START, MAIN_START).toMillis()));
+        phases.addAll(PHASES);
+
+        List<TimelineEvent> events = APPLICATION_STARTUP.getBufferedTimeline().getEvents();
+        Instant ready = null;
+        for (TimelineEvent event : events) {
+            String name = event.getStartupStep().getName();
+            if (name.startsWith("spring.boot.application.") || name.equals("spring.context.refresh")) {
+                phases.add(new Phase(name, event.getDuration().toMillis()));
+            }
+            if (name.equals("spring.boot.application.ready")) {
+                ready = event.getEndTime();
+            }
+        }
+
+        List<Phase> slowestBeans = events.stream()
+                .filter(event -> event.getStartupStep().getName().equals("spring.beans.instantiate"))
+                .sorted(Comparator.comparing(TimelineEvent::getDuration).reversed())
+                .limit(SLOWEST_BEANS)
+                .map(event -> new Phase(beanName(event), event.getDuration().toMillis()))
+                .toList();
+
+        return new Report(
+                ready == null ? -1 : Duration.between(PROCESS_START, ready).toMillis(),
+                phases,
+                slowestBeans);
+    }
+
+    private static String beanName(TimelineEvent event) {
+        for (var tag : event.getStartupStep().getTags()) {
+            if (tag.getKey().equals("beanName")) return tag.getValue();
+        }
+        return "?";
+    }
+
+    public record Phase(String name, long millis) {}
+
+    public record Report(
+            long readyMillis,           // desde el arranque del proceso hasta ApplicationReady (-1 = todavía no)
+            List<Phase> phases,         // en orden de ejecución
+            List<Phase> slowestBeans    // instanciación, incluye la de sus dependencias
+    ) {}
+}
@@ -0,0 +1,84 @@
+// ============================================================
+// observability/TimedEmbeddingModel.java — EmbeddingModel medido
+// ============================================================
+// Decorador que mide cada llamada al modelo de embeddings
+// (remoto o local) sin tocar su implementación:
+//   rag.embedding.duration{operation=call|document}
+//   rag.embedding.texts   textos embebidos
+// y emite un evento JFR RagEvents.Embedding por llamada.
+// ============================================================
+
+package com.agentes.rag.observability;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.function.Supplier;
+
+public class TimedEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+    private final RagMetrics metrics;
+    private final Counter texts;
+
+    public TimedEmbeddingModel(EmbeddingModel delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.texts = metrics.counter("rag.embedding.texts");
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        texts.increment(request.getInstructions().size());
+        long characters = request.getInstructions().stream().mapToLong(String::length).sum();
+        return recorded(request.getInstructions().size(), characters,
+                () -> metrics.time("rag.embedding.duration", () -> delegate.call(request), "operation", "call"));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        texts.increment();
+        return recorded(1, document.getContent().length(),
+                () -> metrics.time("rag.embedding.duration", () -> delegate.embed(document), "operation", "document"));
+    }
+
+    private <T> T recorded(int count, long characters, Supplier<T> call) {
+        var event = new RagEvents.Embedding();
+        event.begin();
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "ok";
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.requestId = RequestContext.requestId();
+                event.texts = count;
+                event.characters = characters;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    /** El modelo real, ej: para saber si es un LocalEmbeddingModel */
+    public EmbeddingModel delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
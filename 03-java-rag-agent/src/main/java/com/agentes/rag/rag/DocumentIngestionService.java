@@ -4,10 +4,17 @@
 // (ver docs/summary.md#el-pipeline-completo-rag y docs/summary.md#chunking)
 // Paso 1 del pipeline RAG: leer documentos, dividirlos en
 // chunks, generar embeddings y almacenarlos en el vector store.
+// Los chunks casi duplicados se filtran antes de los embeddings
+// (ver NearDuplicateDetector).
 // ============================================================
 
 package com.agentes.rag.rag;
 
+import com.agentes.rag.observability.RagEvents;
+import com.agentes.rag.observability.RagMetrics;
+import com.agentes.rag.observability.RequestContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
@@ -23,6 +30,7 @@ import java.io.IOException;
 import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class DocumentIngestionService {
@@ -33,16 +41,34 @@ public class DocumentIngestionService {
     private final int chunkSize;
     private final int chunkOverlap;
     private final String documentsPath;
+    private final NearDuplicateDetector duplicateDetector;
+    private final RagMetrics metrics;
+
+    /** Chunks escritos al vector store (gauge rag.vectorstore.chunks) */
+    private final AtomicLong storedChunks = new AtomicLong();
+
+    /** Se incrementa en cada escritura al vector store (invalida resultados cacheados) */
+    private final AtomicLong indexVersion = new AtomicLong();
 
     public DocumentIngestionService(
             VectorStore vectorStore,
             @Value("${rag.chunk-size:800}") int chunkSize,
             @Value("${rag.chunk-overlap:200}") int chunkOverlap,
-            @Value("${rag.documents-path:./documents}") String documentsPath) {
+            @Value("${rag.documents-path:./documents}") String documentsPath,
+            NearDuplicateDetector duplicateDetector,
+            RagMetrics metrics) {
         this.vectorStore = vectorStore;
         this.chunkSize = chunkSize;
         this.chunkOverlap = chunkOverlap;
         this.documentsPath = documentsPath;
+        this.duplicateDetector = duplicateDetector;
+        this.metrics = metrics;
+
+        Gauge.builder("rag.vectorstore.chunks", storedChunks, AtomicLong::get)
+                .description("Chunks almacenados en el vector store")
+                .register(metrics.registry());
+        Gauge.builder("rag.index.version", indexVersion, AtomicLong::get)
+                .register(metrics.registry());
     }
 
     /**
@@ -52,16 +78,18 @@ public class DocumentIngestionService {
      * 1. Escanear el directorio
      * 2. Parsear cada archivo (PDF, TXT, DOCX, etc.) con Tika
      * 3. Dividir en chunks (TokenTextSplitter)
-     * 4. Almacenar en el Vector Store (genera embeddings automáticamente)
+     * 4. Descartar chunks casi duplicados
+     * 5. Almacenar en el Vector Store (genera embeddings automáticamente)
      */
-    public int ingestAll() throws IOException {
+    public IngestionResult ingestAll() throws IOException {
         Path docsDir = Paths.get(documentsPath);
         if (!Files.exists(docsDir)) {
             Files.createDirectories(docsDir);
             log.warn("Directorio de documentos creado: {}. Añade documentos y re-ejecuta.", docsDir);
-            return 0;
+            return new IngestionResult(0, duplicateDetector.deduplicate(List.of()).report());
         }
 
+        Timer.Sample sample = Timer.start(metrics.registry());
         List<Document> allChunks = new ArrayList<>();
         var splitter = new TokenTextSplitter(chunkSize, chunkOverlap, 5, 10000, true);
 
@@ -72,7 +100,9 @@ public class DocumentIngestionService {
                     Resource resource = new FileSystemResource(path);
                     var reader = new TikaDocumentReader(resource);
                     List<Document> documents = reader.get();
-                    List<Document> chunks = splitter.apply(documents);
+                    List<Document> chunks = metrics.time("rag.ingestion.split.duration",
+                            () -> splitter.apply(documents));
+                    metrics.counter("rag.ingestion.documents").increment();
 
                     // Añadir metadata a cada chunk
                     chunks.forEach(chunk -> {
@@ -88,28 +118,103 @@ public class DocumentIngestionService {
             });
         }
 
-        if (!allChunks.isEmpty()) {
-            vectorStore.add(allChunks);
-            log.info("✅ {} chunks totales almacenados en el vector store", allChunks.size());
+        NearDuplicateDetector.Result unique = deduplicate(allChunks);
+        if (!unique.unique().isEmpty()) {
+            store(unique);
+            log.info("✅ {} chunks totales almacenados en el vector store", unique.unique().size());
         }
 
-        return allChunks.size();
+        sample.stop(metrics.timer("rag.ingestion.duration", "mode", "all"));
+        return new IngestionResult(unique.unique().size(), unique.report());
     }
 
     /**
      * Ingesta un solo documento.
      */
-    public int ingestDocument(Resource resource, String filename) {
+    public IngestionResult ingestDocument(Resource resource, String filename) {
+        Timer.Sample sample = Timer.start(metrics.registry());
         var reader = new TikaDocumentReader(resource);
         var splitter = new TokenTextSplitter(chunkSize, chunkOverlap, 5, 10000, true);
 
         List<Document> documents = reader.get();
-        List<Document> chunks = splitter.apply(documents);
+        List<Document> chunks = metrics.time("rag.ingestion.split.duration", () -> splitter.apply(documents));
+        metrics.counter("rag.ingestion.documents").increment();
 
         chunks.forEach(chunk -> chunk.getMetadata().put("source", filename));
 
-        vectorStore.add(chunks);
-        log.info("✅ Documento '{}' ingestado: {} chunks", filename, chunks.size());
-        return chunks.size();
+        NearDuplicateDetector.Result unique = deduplicate(chunks);
+        if (!unique.unique().isEmpty()) {
+            store(unique);
+        }
+        sample.stop(metrics.timer("rag.ingestion.duration", "mode", "single"));
+        log.info("✅ Documento '{}' ingestado: {} chunks", filename, unique.unique().size());
+        return new IngestionResult(unique.unique().size(), unique.report());
+    }
+
+    private NearDuplicateDetector.Result deduplicate(List<Document> chunks) {
+        NearDuplicateDetector.Result result = metrics.time("rag.ingestion.dedup.duration",
+                () -> duplicateDetector.deduplicate(chunks));
+        NearDuplicateDetector.Report report = result.report();
+        metrics.counter("rag.ingestion.duplicates", "action", "collapsed").increment(report.collapsed());
+        metrics.counter("rag.ingestion.duplicates", "action", "skipped").increment(report.skipped());
+        if (report.collapsed() + report.skipped() > 0) {
+            log.info("  ♻️ {} chunks duplicados ({} colapsados, {} ya indexados)",
+                    report.collapsed() + report.skipped(), report.collapsed(), report.skipped());
+        }
+        return result;
     }
+
+    /**
+     * Embeddings + escritura al vector store; si falla, el detector olvida el lote.
+     * Después borra los chunks que el lote reemplaza con una versión editada.
+     */
+    private void store(NearDuplicateDetector.Result unique) {
+        try {
+            store(unique.unique());
+        } catch (RuntimeException e) {
+            duplicateDetector.discard(unique);
+            throw e;
+        }
+        if (!unique.replaced().isEmpty()) {
+            vectorStore.delete(unique.replaced());
+            duplicateDetector.forget(unique.replaced());
+            storedChunks.addAndGet(-unique.replaced().size());
+            log.info("  ✏️ {} chunks reemplazados por su versión editada", unique.replaced().size());
+        }
+    }
+
+    private void store(List<Document> chunks) {
+        var event = new RagEvents.IngestionBatch();
+        event.begin();
+        String outcome = "error";
+        try {
+            metrics.time("rag.ingestion.store.duration", () -> {
+                vectorStore.add(chunks);
+                return null;
+            });
+            outcome = "ok";
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.requestId = RequestContext.requestId();
+                event.chunks = chunks.size();
+                event.characters = chunks.stream().mapToLong(chunk -> chunk.getContent().length()).sum();
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+        metrics.counter("rag.ingestion.chunks").increment(chunks.size());
+        storedChunks.addAndGet(chunks.size());
+        indexVersion.incrementAndGet();
+    }
+
+    /** Versión actual del índice: cambia cada vez que se ingestan documentos */
+    public long indexVersion() {
+        return indexVersion.get();
+    }
+
+    public record IngestionResult(
+            int chunks,                                 // chunks almacenados
+            NearDuplicateDetector.Report deduplication
+    ) {}
 }
@@ -0,0 +1,183 @@
+// ============================================================
+// rag/LocalEmbeddingModel.java — Embeddings in-process (ONNX)
+// ============================================================
+// (ver docs/summary.md#embeddings)
+// Ejecuta un modelo sentence-embedding (all-MiniLM-L6-v2 por
+// defecto) DENTRO de la JVM con ONNX Runtime, usando las libs
+// que ya trae spring-ai-transformers-spring-boot-starter.
+//
+// Frente al modo remoto (Ollama/OpenAI por HTTP):
+//   - Sin salto de red por query ni por chunk ingestado
+//   - Sin Ollama local solo para embeddings (Groq/Gemini/GitHub)
+//   - Threads de ONNX configurables (intra-op)
+//   - Inferencia por lotes (batch-size textos por llamada)
+//   - Warm-up al arrancar: el primer request no paga el modelo frío
+// ============================================================
+
+package com.agentes.rag.rag;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.transformers.ResourceCacheService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LocalEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalEmbeddingModel.class);
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final int batchSize;
+    private final int dimensions;
+
+    public LocalEmbeddingModel(
+            String modelUri,
+            String tokenizerUri,
+            String cacheDirectory,
+            int intraOpThreads,
+            int batchSize,
+            int warmupIterations) {
+        this.batchSize = Math.max(1, batchSize);
+
+        var cache = new ResourceCacheService(cacheDirectory);
+        try (InputStream tokenizerStream = cache.getCachedResource(tokenizerUri).getInputStream();
+             InputStream modelStream = cache.getCachedResource(modelUri).getInputStream()) {
+
+            this.tokenizer = HuggingFaceTokenizer.newInstance(tokenizerStream,
+                    Map.of("padding", "true", "truncation", "true"));
+
+            this.environment = OrtEnvironment.getEnvironment();
+            var sessionOptions = new OrtSession.SessionOptions();
+            if (intraOpThreads > 0) {
+                sessionOptions.setIntraOpNumThreads(intraOpThreads);
+            }
+            this.session = environment.createSession(modelStream.readAllBytes(), sessionOptions);
+
+        } catch (IOException | OrtException e) {
+            throw new IllegalStateException("No se pudo cargar el modelo ONNX de embeddings: " + e.getMessage(), e);
+        }
+
+        // Warm-up: la primera inferencia paga la inicialización de ONNX y el JIT
+        long start = System.nanoTime();
+        float[] probe = null;
+        for (int i = 0; i < Math.max(1, warmupIterations); i++) {
+            probe = embedBatch(List.of("warm-up del modelo de embeddings")).get(0);
+        }
+        this.dimensions = probe.length;
+        log.info("✅ Modelo de embeddings local listo: {} dimensiones, warm-up en {} ms",
+                dimensions, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+
+        // Inferencia por lotes: un solo run de ONNX cada batchSize textos
+        for (int from = 0; from < texts.size(); from += batchSize) {
+            List<float[]> vectors = embedBatch(texts.subList(from, Math.min(texts.size(), from + batchSize)));
+            for (float[] vector : vectors) {
+                embeddings.add(new Embedding(vector, embeddings.size()));
+            }
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public void close() throws OrtException {
+        session.close();
+        tokenizer.close();
+    }
+
+    /**
+     * Tokeniza, ejecuta el modelo y aplica mean pooling + normalización L2
+     * sobre last_hidden_state (igual que sentence-transformers).
+     */
+    private List<float[]> embedBatch(List<String> texts) {
+        Encoding[] encodings = tokenizer.batchEncode(texts);
+
+        long[][] inputIds = new long[encodings.length][];
+        long[][] attentionMask = new long[encodings.length][];
+        long[][] tokenTypeIds = new long[encodings.length][];
+        for (int i = 0; i < encodings.length; i++) {
+            inputIds[i] = encodings[i].getIds();
+            attentionMask[i] = encodings[i].getAttentionMask();
+            tokenTypeIds[i] = encodings[i].getTypeIds();
+        }
+
+        try (OnnxTensor ids = OnnxTensor.createTensor(environment, inputIds);
+             OnnxTensor mask = OnnxTensor.createTensor(environment, attentionMask);
+             OnnxTensor types = OnnxTensor.createTensor(environment, tokenTypeIds)) {
+
+            Map<String, OnnxTensor> inputs = new HashMap<>();
+            inputs.put("input_ids", ids);
+            inputs.put("attention_mask", mask);
+            inputs.put("token_type_ids", types);
+            inputs.keySet().retainAll(session.getInputNames());
+
+            try (OrtSession.Result result = session.run(inputs)) {
+                OnnxValue output = result.get("last_hidden_state").orElseGet(() -> result.get(0));
+                float[][][] tokenEmbeddings = (float[][][]) output.getValue();
+                return meanPool(tokenEmbeddings, attentionMask);
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("Error ejecutando el modelo ONNX: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<float[]> meanPool(float[][][] tokenEmbeddings, long[][] attentionMask) {
+        List<float[]> vectors = new ArrayList<>(tokenEmbeddings.length);
+        for (int i = 0; i < tokenEmbeddings.length; i++) {
+            int dims = tokenEmbeddings[i][0].length;
+            float[] pooled = new float[dims];
+            int tokens = 0;
+            for (int t = 0; t < tokenEmbeddings[i].length; t++) {
+                if (attentionMask[i][t] == 0) continue;
+                float[] token = tokenEmbeddings[i][t];
+                for (int d = 0; d < dims; d++) pooled[d] += token[d];
+                tokens++;
+            }
+
+            double norm = 0;
+            for (int d = 0; d < dims; d++) {
+                pooled[d] /= Math.max(1, tokens);
+                norm += pooled[d] * pooled[d];
+            }
+            float inv = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0;
+            for (int d = 0; d < dims; d++) pooled[d] *= inv;
+
+            vectors.add(pooled);
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,389 @@
+// ============================================================
+// rag/NearDuplicateDetector.java — Chunks casi duplicados
+// ============================================================
+// Varias versiones del mismo manual generan chunks casi iguales:
+// cada copia cuesta un embedding, memoria en el índice y ocupa
+// lugares del topK con el mismo contenido.
+//
+// Antes de los embeddings, cada chunk se resume con MinHash:
+//   1. Shingles: secuencias de N palabras normalizadas
+//   2. Firma: para K funciones de hash, el mínimo hash de sus
+//      shingles. P(firmas iguales en una posición) = Jaccard
+//   3. LSH: la firma se parte en bandas; dos chunks son
+//      candidatos si coinciden en alguna banda completa, así no
+//      se compara cada chunk contra todos
+//   4. Un candidato es duplicado si su Jaccard estimado (posiciones
+//      iguales / K) supera app.dedup.threshold
+//
+// Dentro de una ingesta, el duplicado se colapsa en el primer
+// chunk (metadata "sources" con todos los archivos) o se descarta
+// (mode=skip). Contra lo que ya está en el índice:
+//   - mismo archivo y mismo texto: se descarta (re-ingestar la
+//     carpeta no duplica nada)
+//   - mismo archivo y texto editado: el chunk nuevo se indexa y
+//     reemplaza al viejo (Result.replaced, que la ingesta borra
+//     del store) salvo que el viejo sea también de otros archivos
+//   - otro archivo: se descarta y el reporte indica de cuál es
+//     copia; el chunk ya almacenado no cambia su "sources"
+//     (reescribirlo costaría volver a embeberlo)
+//
+// Se recuerdan como máximo app.dedup.max-entries firmas (~600
+// bytes cada una); al pasarse se olvidan las más viejas. forget()
+// olvida los chunks que se borran del índice.
+// ============================================================
+
+package com.agentes.rag.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+@Component
+public class NearDuplicateDetector {
+
+    /** Cuántos pares duplicados se listan en el reporte como ejemplo */
+    private static final int MAX_REPORTED = 20;
+
+    private final Mode mode;
+    private final double threshold;
+    private final int shingleSize;
+    private final int bands;
+    private final int rows;
+    private final long[] hashSeeds;
+    private final int maxEntries;
+
+    /** Firmas de lo ya indexado, de la más vieja a la más nueva; LSH: banda → hash de la banda → entradas */
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Integer> entryByDocument = new HashMap<>();
+    private final List<Map<Long, List<Integer>>> buckets = new ArrayList<>();
+    private int nextId;
+
+    public enum Mode { COLLAPSE, SKIP, OFF }
+
+    public NearDuplicateDetector(
+            @Value("${app.dedup.mode:collapse}") String mode,
+            @Value("${app.dedup.threshold:0.9}") double threshold,
+            @Value("${app.dedup.num-hashes:128}") int numHashes,
+            @Value("${app.dedup.shingle-size:3}") int shingleSize,
+            @Value("${app.dedup.max-entries:100000}") int maxEntries) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.maxEntries = maxEntries;
+        this.threshold = threshold;
+        this.shingleSize = shingleSize;
+        this.rows = rowsPerBand(numHashes, threshold);
+        this.bands = numHashes / rows;
+
+        var random = new SplittableRandom(0x5EED);
+        this.hashSeeds = new long[bands * rows];
+        for (int i = 0; i < hashSeeds.length; i++) {
+            hashSeeds[i] = random.nextLong();
+        }
+        for (int b = 0; b < bands; b++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Filtra los duplicados de un lote de chunks y registra los que quedan
+     * como ya indexados.
+     *
+     * @return Los chunks a embeber y el reporte de la deduplicación
+     */
+    public synchronized Result deduplicate(List<Document> chunks) {
+        if (mode == Mode.OFF) {
+            return new Result(chunks, Report.disabled(chunks.size()), List.of(), List.of());
+        }
+
+        int batchStart = nextId;
+        List<Document> kept = new ArrayList<>(chunks.size());
+        List<Integer> registered = new ArrayList<>(chunks.size());
+        Set<String> replaced = new LinkedHashSet<>();
+        List<Duplicate> examples = new ArrayList<>();
+        int collapsed = 0;
+        int skipped = 0;
+
+        for (Document chunk : chunks) {
+            int[] signature = signature(chunk.getContent());
+            String source = source(chunk);
+            Match match = findMatch(signature);
+            Entry original = match == null ? null : entries.get(match.entry());
+            boolean sameBatch = match != null && match.entry() >= batchStart;
+
+            // Versión editada de un chunk ya indexado del mismo archivo: reemplaza al viejo
+            boolean edited = original != null && !sameBatch
+                    && original.sources().contains(source) && original.contentHash() != contentHash(chunk);
+            if (original == null || edited) {
+                registered.add(register(signature, chunk, source));
+                kept.add(chunk);
+                if (edited && original.sources().size() == 1) {
+                    replaced.add(original.documentId());
+                    example(examples, source, source, match, "replaced");
+                } else if (edited) {
+                    // El viejo también representa a otros archivos: se conserva
+                    example(examples, source, source, match, "kept");
+                }
+                continue;
+            }
+
+            if (sameBatch && mode == Mode.COLLAPSE) {
+                original.sources().add(source);
+                original.document().getMetadata().put("sources", List.copyOf(original.sources()));
+                collapsed++;
+            } else {
+                skipped++;
+            }
+            example(examples, source, original.sources().iterator().next(), match,
+                    sameBatch ? "collapsed" : "skipped");
+        }
+
+        // Solo los chunks nuevos necesitan el documento en memoria (para colapsar en este lote)
+        for (int id : registered) {
+            entries.computeIfPresent(id, (key, entry) -> entry.withoutDocument());
+        }
+        evictOldest();
+
+        return new Result(kept, new Report(mode.name().toLowerCase(Locale.ROOT), threshold,
+                chunks.size(), kept.size(), collapsed, skipped, replaced.size(), examples),
+                registered, List.copyOf(replaced));
+    }
+
+    /**
+     * Olvida los chunks registrados por un lote que no se llegó a almacenar
+     * (ej: falló el modelo de embeddings), para que un reintento no los
+     * descarte como duplicados de algo que no está en el índice.
+     */
+    public synchronized void discard(Result result) {
+        for (int id : result.registered()) {
+            remove(id);
+        }
+    }
+
+    /** Olvida chunks borrados del índice (ej: los reemplazados por una versión editada) */
+    public synchronized void forget(Collection<String> documentIds) {
+        for (String documentId : documentIds) {
+            Integer id = entryByDocument.get(documentId);
+            if (id != null) remove(id);
+        }
+    }
+
+    /** Entradas recordadas (para tests y métricas) */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // ---- MinHash ----
+
+    int[] signature(String text) {
+        String[] words = normalize(text).split(" ");
+        int[] signature = new int[hashSeeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        int shingles = Math.max(1, words.length - shingleSize + 1);
+        for (int s = 0; s < shingles; s++) {
+            long shingle = shingleHash(words, s, Math.min(words.length, s + shingleSize));
+            for (int i = 0; i < hashSeeds.length; i++) {
+                int h = (int) (mix(shingle ^ hashSeeds[i]) >>> 33);
+                if (h < signature[i]) signature[i] = h;
+            }
+        }
+        return signature;
+    }
+
+    private static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+
+    /** FNV-1a de 64 bits sobre las palabras del shingle */
+    private static long shingleHash(String[] words, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int w = from; w < to; w++) {
+            String word = words[w];
+            for (int c = 0; c < word.length(); c++) {
+                hash ^= word.charAt(c);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= ' ';
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /** Finalizador de SplitMix64: cada seed da una permutación de hash distinta */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // ---- LSH ----
+
+    private Match findMatch(int[] signature) {
+        Match best = null;
+        Set<Integer> seen = new LinkedHashSet<>();
+        for (int b = 0; b < bands; b++) {
+            List<Integer> candidates = buckets.get(b).get(bandHash(signature, b));
+            if (candidates == null) continue;
+            for (int candidate : candidates) {
+                if (!seen.add(candidate) || !entries.containsKey(candidate)) continue;
+                double similarity = similarity(signature, entries.get(candidate).signature());
+                if (similarity >= threshold && (best == null || similarity > best.similarity())) {
+                    best = new Match(candidate, similarity);
+                }
+            }
+        }
+        return best;
+    }
+
+    private int register(int[] signature, Document chunk, String source) {
+        int id = nextId++;
+        Set<String> sources = new LinkedHashSet<>();
+        sources.add(source);
+        entries.put(id, new Entry(signature, chunk, chunk.getId(), contentHash(chunk), sources));
+        entryByDocument.put(chunk.getId(), id);
+        for (int b = 0; b < bands; b++) {
+            buckets.get(b).computeIfAbsent(bandHash(signature, b), k -> new ArrayList<>(1)).add(id);
+        }
+        return id;
+    }
+
+    private void remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) return;
+        entryByDocument.remove(entry.documentId(), id);
+        for (int b = 0; b < bands; b++) {
+            long hash = bandHash(entry.signature(), b);
+            List<Integer> bucket = buckets.get(b).get(hash);
+            if (bucket == null) continue;
+            bucket.remove(Integer.valueOf(id));
+            if (bucket.isEmpty()) buckets.get(b).remove(hash);
+        }
+    }
+
+    /** Olvida las firmas más viejas por encima de app.dedup.max-entries */
+    private void evictOldest() {
+        Iterator<Integer> oldest = entries.keySet().iterator();
+        List<Integer> evicted = new ArrayList<>();
+        for (int excess = entries.size() - maxEntries; excess > 0 && oldest.hasNext(); excess--) {
+            evicted.add(oldest.next());
+        }
+        evicted.forEach(this::remove);
+    }
+
+    private long bandHash(int[] signature, int band) {
+        long hash = band;
+        for (int r = band * rows; r < (band + 1) * rows; r++) {
+            hash = mix(hash * 31 + signature[r]);
+        }
+        return hash;
+    }
+
+    private static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) equal++;
+        }
+        return (double) equal / a.length;
+    }
+
+    /**
+     * Filas por banda para que el umbral de LSH, (1/bandas)^(1/filas),
+     * quede lo más cerca posible del umbral de similitud.
+     */
+    private static int rowsPerBand(int numHashes, double threshold) {
+        int best = 1;
+        double bestError = Double.MAX_VALUE;
+        for (int r = 1; r <= numHashes; r++) {
+            if (numHashes % r != 0) continue;
+            double lshThreshold = Math.pow(1.0 / (numHashes / r), 1.0 / r);
+            // Preferir quedar por debajo: un falso candidato se descarta al comparar firmas
+            double error = Math.abs(lshThreshold - threshold) + (lshThreshold > threshold ? 0.05 : 0);
+            if (error < bestError) {
+                bestError = error;
+                best = r;
+            }
+        }
+        return best;
+    }
+
+    private static void example(List<Duplicate> examples, String source, String duplicateOf,
+                                Match match, String action) {
+        if (examples.size() < MAX_REPORTED) {
+            examples.add(new Duplicate(source, duplicateOf,
+                    Math.round(match.similarity() * 1000) / 1000.0, action));
+        }
+    }
+
+    /** FNV-1a del texto exacto: distingue un chunk sin cambios de uno editado */
+    private static long contentHash(Document chunk) {
+        String content = chunk.getContent();
+        long hash = 0xcbf29ce484222325L;
+        for (int c = 0; c < content.length(); c++) {
+            hash ^= content.charAt(c);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static String source(Document chunk) {
+        return String.valueOf(chunk.getMetadata().getOrDefault("source", "desconocido"));
+    }
+
+    // ---- Tipos ----
+
+    private record Entry(int[] signature, Document document, String documentId, long contentHash,
+                         Set<String> sources) {
+        Entry withoutDocument() {
+            return new Entry(signature, null, documentId, contentHash, Collections.unmodifiableSet(sources));
+        }
+    }
+
+    private record Match(int entry, double similarity) {}
+
+    public record Result(
+            List<Document> unique,
+            Report report,
+            List<Integer> registered,   // entradas nuevas en el índice LSH (para discard)
+            List<String> replaced       // ids de chunks indexados con una versión editada en este lote
+    ) {}
+
+    public record Duplicate(
+            String source,
+            String duplicateOf,
+            double similarity,
+            String action               // collapsed | skipped | replaced | kept (editado, el viejo es de varios archivos)
+    ) {}
+
+    /** Reporte de una ingesta (lo devuelve el endpoint de ingesta) */
+    public record Report(
+            String mode,
+            double threshold,
+            int chunks,                 // chunks generados por el splitter
+            int unique,                 // chunks embebidos y almacenados
+            int collapsed,              // fusionados con otro chunk del mismo lote
+            int skipped,                // ya estaban en el índice (o mode=skip)
+            int replaced,               // versiones editadas que reemplazan a un chunk indexado
+            List<Duplicate> examples
+    ) {
+        static Report disabled(int chunks) {
+            return new Report("off", 0, chunks, chunks, 0, 0, 0, List.of());
+        }
+    }
+}
@@ -4,15 +4,26 @@
 // (ver docs/summary.md#vector-store-y-similitud-coseno y docs/summary.md#embeddings)
 // Paso 2 del pipeline RAG: dada una consulta, encontrar los
 // chunks más relevantes en el vector store.
+//
+// searchBatch() atiende muchas consultas a la vez (evaluaciones,
+// servicios upstream): embeddings en lotes y, con el
+// CompactVectorStore, scoring de todas juntas en una pasada.
 // ============================================================
 
 package com.agentes.rag.rag;
 
+import com.agentes.rag.observability.RagEvents;
+import com.agentes.rag.observability.RagMetrics;
+import com.agentes.rag.observability.RequestContext;
+import com.agentes.rag.store.CompactVectorStore;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -20,9 +31,19 @@ import java.util.stream.Collectors;
 public class RetrievalService {
 
     private final VectorStore vectorStore;
+    private final EmbeddingModel embeddingModel;
+    private final int embeddingBatchSize;
+    private final RagMetrics metrics;
 
-    public RetrievalService(VectorStore vectorStore) {
+    public RetrievalService(
+            VectorStore vectorStore,
+            EmbeddingModel embeddingModel,
+            @Value("${rag.store.embedding-batch-size:64}") int embeddingBatchSize,
+            RagMetrics metrics) {
         this.vectorStore = vectorStore;
+        this.embeddingModel = embeddingModel;
+        this.embeddingBatchSize = embeddingBatchSize;
+        this.metrics = metrics;
     }
 
     /**
@@ -42,7 +63,48 @@ public class RetrievalService {
                 .withTopK(topK)
                 .withSimilarityThreshold(threshold);
 
-        return vectorStore.similaritySearch(searchRequest);
+        var event = new RagEvents.Retrieval();
+        event.begin();
+        List<Document> results = null;
+        try {
+            results = metrics.time("rag.retrieval.search.duration", () -> vectorStore.similaritySearch(searchRequest));
+            return results;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.requestId = RequestContext.requestId();
+                event.queryLength = query.length();
+                event.topK = topK;
+                event.threshold = threshold;
+                event.chunks = results == null ? 0 : results.size();
+                event.outcome = results == null ? "error" : "ok";
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Busca muchas consultas de una vez.
+     *
+     * Con CompactVectorStore: embeddings en lotes de rag.store.embedding-batch-size
+     * y scoring matricial de todas las consultas contra el índice. Con otro
+     * vector store, una búsqueda por consulta.
+     *
+     * @return Los topK de cada consulta, en el mismo orden que queries
+     */
+    public List<List<Document>> searchBatch(List<String> queries, int topK, double threshold) {
+        metrics.counter("rag.retrieval.batch.queries").increment(queries.size());
+        return metrics.time("rag.retrieval.batch.duration", () -> {
+            if (!(vectorStore instanceof CompactVectorStore compact)) {
+                return queries.stream().map(query -> search(query, topK, threshold)).toList();
+            }
+            List<float[]> embeddings = new ArrayList<>(queries.size());
+            for (int from = 0; from < queries.size(); from += embeddingBatchSize) {
+                embeddings.addAll(embeddingModel.embed(
+                        queries.subList(from, Math.min(queries.size(), from + embeddingBatchSize))));
+            }
+            return compact.similaritySearchBatch(embeddings, topK, threshold);
+        });
     }
 
     /**
@@ -56,11 +118,16 @@ public class RetrievalService {
             return "No se encontraron documentos relevantes.";
         }
 
-        return results.stream()
+        return metrics.time("rag.retrieval.format.duration", () -> results.stream()
                 .map(doc -> {
-                    String source = doc.getMetadata().getOrDefault("source", "desconocido").toString();
+                    // Un chunk colapsado por NearDuplicateDetector lista todos sus archivos
+                    Object source = doc.getMetadata().getOrDefault("sources",
+                            doc.getMetadata().getOrDefault("source", "desconocido"));
+                    if (source instanceof List<?> sources) {
+                        source = sources.stream().map(String::valueOf).collect(Collectors.joining(", "));
+                    }
                     return String.format("[Fuente: %s]\n%s", source, doc.getContent());
                 })
-                .collect(Collectors.joining("\n\n---\n\n"));
+                .collect(Collectors.joining("\n\n---\n\n")));
     }
 }
@@ -0,0 +1,82 @@
+// ============================================================
+// routing/ProviderStats.java — Latencia y errores por proveedor
+// ============================================================
+// Mantiene una ventana deslizante con las últimas N latencias
+// (para p50/p95 "móviles") y una tasa de error suavizada con
+// media móvil exponencial (EWMA).
+//
+// RoutingChatModel usa estos números para elegir el mejor
+// proveedor y para decidir cuándo lanzar un request "hedged".
+// ============================================================
+
+package com.agentes.rag.routing;
+
+import java.util.Arrays;
+
+public class ProviderStats {
+
+    /** Peso de la última observación en la tasa de error (EWMA) */
+    private static final double ERROR_ALPHA = 0.1;
+
+    private final long[] windowNanos;
+    private int next;
+    private int count;
+    private double errorRate;
+    private long successes;
+    private long failures;
+
+    public ProviderStats(int windowSize) {
+        this.windowNanos = new long[Math.max(1, windowSize)];
+    }
+
+    public synchronized void recordSuccess(long elapsedNanos) {
+        windowNanos[next] = elapsedNanos;
+        next = (next + 1) % windowNanos.length;
+        if (count < windowNanos.length) count++;
+        errorRate = (1 - ERROR_ALPHA) * errorRate;
+        successes++;
+    }
+
+    public synchronized void recordFailure() {
+        errorRate = (1 - ERROR_ALPHA) * errorRate + ERROR_ALPHA;
+        failures++;
+    }
+
+    /** Percentil (0.0 - 1.0) de la ventana en milisegundos, o -1 si no hay muestras */
+    public synchronized double percentileMillis(double p) {
+        if (count == 0) return -1;
+        long[] sorted = Arrays.copyOf(windowNanos, count);
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(p * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, idx))] / 1_000_000.0;
+    }
+
+    public synchronized double errorRate() {
+        return errorRate;
+    }
+
+    /**
+     * Puntaje de routing: menor es mejor.
+     * p95 penalizado por la tasa de error; un proveedor sin muestras
+     * puntúa 0 para que reciba tráfico y se pueda medir. Si no tiene
+     * muestras porque TODO falló, va al final (solo recibe failover).
+     */
+    public synchronized double score() {
+        double p95 = percentileMillis(0.95);
+        if (p95 < 0) return failures > 0 ? Double.MAX_VALUE : 0;
+        return p95 * (1 + 10 * errorRate);
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(percentileMillis(0.5), percentileMillis(0.95),
+                errorRate, successes, failures);
+    }
+
+    public record Snapshot(
+            double p50Millis,
+            double p95Millis,
+            double errorRate,
+            long successes,
+            long failures
+    ) {}
+}
@@ -0,0 +1,284 @@
+// ============================================================
+// routing/RoutingChatModel.java — Routing multi-proveedor
+// ============================================================
+// ChatModel que envuelve VARIOS proveedores OpenAI-compatible
+// configurados a la vez (ej: groq + openai) y elige en cada
+// llamada el que mejor está respondiendo:
+//
+//   call(prompt)
+//     │
+//     ├─ ordenar proveedores por score (p95 × tasa de error)
+//     ├─ EXPLORACIÓN: una fracción de los requests
+//     │  (app.routing.explore-ratio) va primero a otro proveedor
+//     │  al azar; las estadísticas solo cambian con tráfico, y sin
+//     │  esto un proveedor degradado una vez no se vuelve a medir
+//     ├─ llamar al primario
+//     │    └─ si falla → failover al siguiente, hasta agotar la lista
+//     │
+//     └─ HEDGING (opcional): si el primario tarda más que su
+//        propio p95, se lanza un duplicado al secundario y se
+//        queda con el que responda primero (el otro se cancela).
+//
+// La latencia de cola de un solo proveedor lento deja de
+// impactar a todos los requests.
+// ============================================================
+
+package com.agentes.rag.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RoutingChatModel implements ChatModel, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutingChatModel.class);
+
+    /** Un proveedor configurado: nombre + modelo concreto + sus estadísticas */
+    public record Provider(String name, ChatModel model, ProviderStats stats) {}
+
+    private final List<Provider> providers;
+    private final boolean hedgeEnabled;
+    private final long hedgeMinDelayMs;
+    private final long hedgeInitialDelayMs;
+    private final double exploreRatio;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Sin exploración: el ranking depende solo de las estadísticas */
+    public RoutingChatModel(
+            List<Provider> providers,
+            boolean hedgeEnabled,
+            long hedgeMinDelayMs,
+            long hedgeInitialDelayMs) {
+        this(providers, hedgeEnabled, hedgeMinDelayMs, hedgeInitialDelayMs, 0);
+    }
+
+    /**
+     * @param exploreRatio Fracción de requests (0 - 1) que van primero a un
+     *                     proveedor que no es el mejor, para volver a medirlo
+     */
+    public RoutingChatModel(
+            List<Provider> providers,
+            boolean hedgeEnabled,
+            long hedgeMinDelayMs,
+            long hedgeInitialDelayMs,
+            double exploreRatio) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("RoutingChatModel necesita al menos un proveedor");
+        }
+        this.providers = List.copyOf(providers);
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeMinDelayMs = hedgeMinDelayMs;
+        this.hedgeInitialDelayMs = hedgeInitialDelayMs;
+        this.exploreRatio = exploreRatio;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        List<Provider> ranked = ranked();
+        if (hedgeEnabled && ranked.size() > 1) {
+            return hedgedCall(prompt, ranked);
+        }
+        // Sin hedging: primario y failover secuencial al resto
+        return failover(prompt, ranked, null);
+    }
+
+    /**
+     * Streaming: se elige el mejor proveedor y se mide hasta el final del stream.
+     * Si falla ANTES del primer token se pasa al siguiente de la lista; después
+     * no (el cliente ya recibió parte de la respuesta). No se hace hedging
+     * (duplicar un stream ya emitido al cliente no es seguro).
+     */
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> stream(prompt, ranked(), 0));
+    }
+
+    private Flux<ChatResponse> stream(Prompt prompt, List<Provider> ranked, int index) {
+        Provider provider = ranked.get(index);
+        long start = System.nanoTime();
+        AtomicBoolean emitted = new AtomicBoolean();
+        return provider.model().stream(prompt)
+                .doOnNext(response -> emitted.set(true))
+                .doOnComplete(() -> provider.stats().recordSuccess(System.nanoTime() - start))
+                .doOnError(e -> provider.stats().recordFailure())
+                .onErrorResume(e -> {
+                    if (emitted.get() || index + 1 >= ranked.size()) return Flux.error(e);
+                    log.warn("Proveedor '{}' falló: {} — stream con '{}'",
+                            provider.name(), e.getMessage(), ranked.get(index + 1).name());
+                    return stream(prompt, ranked, index + 1);
+                });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return providers.get(0).model().getDefaultOptions();
+    }
+
+    /** Proveedores configurados, en el orden de ROUTING_PROVIDERS (para el warm-up) */
+    public List<Provider> providers() {
+        return providers;
+    }
+
+    /** Estadísticas actuales por proveedor (para /api/providers) */
+    public Map<String, ProviderStats.Snapshot> stats() {
+        Map<String, ProviderStats.Snapshot> result = new LinkedHashMap<>();
+        providers.forEach(p -> result.put(p.name(), p.stats().snapshot()));
+        return result;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // ---- Routing ----
+
+    /** Proveedores por score; con probabilidad exploreRatio, uno de los demás pasa adelante */
+    private List<Provider> ranked() {
+        List<Provider> ranked = new ArrayList<>(providers);
+        ranked.sort(Comparator.comparingDouble(p -> p.stats().score()));
+        var random = ThreadLocalRandom.current();
+        if (ranked.size() > 1 && exploreRatio > 0 && random.nextDouble() < exploreRatio) {
+            ranked.add(0, ranked.remove(1 + random.nextInt(ranked.size() - 1)));
+        }
+        return ranked;
+    }
+
+    /** Prueba los proveedores en orden hasta que uno responde */
+    private ChatResponse failover(Prompt prompt, List<Provider> candidates, RuntimeException lastError) {
+        for (Provider provider : candidates) {
+            try {
+                return timedCall(provider, prompt);
+            } catch (RuntimeException e) {
+                log.warn("Proveedor '{}' falló: {} — probando el siguiente", provider.name(), e.getMessage());
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+
+    private ChatResponse timedCall(Provider provider, Prompt prompt) {
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = provider.model().call(prompt);
+            provider.stats().recordSuccess(System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            provider.stats().recordFailure();
+            throw e;
+        }
+    }
+
+    // ---- Hedging ----
+
+    private record Outcome(Provider provider, ChatResponse response) {}
+
+    private ChatResponse hedgedCall(Prompt prompt, List<Provider> ranked) {
+        Provider primary = ranked.get(0);
+        Provider secondary = ranked.get(1);
+        CompletableFuture<Outcome> primaryResult = new CompletableFuture<>();
+        Future<?> primaryTask = executor.submit(() -> attempt(primary, prompt, primaryResult));
+
+        // 1. Esperar al primario hasta su p95
+        try {
+            return primaryResult.get(hedgeDelayMillis(primary), TimeUnit.MILLISECONDS).response();
+        } catch (TimeoutException slow) {
+            log.debug("Proveedor '{}' más lento que su p95 — hedging con '{}'", primary.name(), secondary.name());
+        } catch (ExecutionException e) {
+            // Falló rápido: failover directo al resto de la lista
+            log.warn("Proveedor '{}' falló: {} — failover a '{}'",
+                    primary.name(), e.getCause().getMessage(), secondary.name());
+            return failover(prompt, ranked.subList(1, ranked.size()), asRuntime(e.getCause()));
+        } catch (InterruptedException e) {
+            primaryTask.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Llamada al LLM interrumpida", e);
+        }
+
+        // 2. Lanzar el duplicado y quedarse con el primero que responda bien
+        CompletableFuture<Outcome> secondaryResult = new CompletableFuture<>();
+        Future<?> secondaryTask = executor.submit(() -> attempt(secondary, prompt, secondaryResult));
+
+        try {
+            Outcome winner = firstSuccessful(primaryResult, secondaryResult).get();
+            // 3. Cancelar al perdedor
+            if (winner.provider() == primary) {
+                secondaryTask.cancel(true);
+            } else {
+                primaryTask.cancel(true);
+            }
+            return winner.response();
+        } catch (ExecutionException e) {
+            // Fallaron los dos: quedan los demás proveedores
+            return failover(prompt, ranked.subList(2, ranked.size()), asRuntime(e.getCause()));
+        } catch (InterruptedException e) {
+            primaryTask.cancel(true);
+            secondaryTask.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Llamada al LLM interrumpida", e);
+        }
+    }
+
+    private static RuntimeException asRuntime(Throwable error) {
+        return error instanceof RuntimeException re
+                ? re
+                : new IllegalStateException("Todos los proveedores fallaron", error);
+    }
+
+    private long hedgeDelayMillis(Provider provider) {
+        double p95 = provider.stats().percentileMillis(0.95);
+        if (p95 < 0) return hedgeInitialDelayMs;
+        return Math.max(hedgeMinDelayMs, (long) Math.ceil(p95));
+    }
+
+    private void attempt(Provider provider, Prompt prompt, CompletableFuture<Outcome> result) {
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = provider.model().call(prompt);
+            provider.stats().recordSuccess(System.nanoTime() - start);
+            result.complete(new Outcome(provider, response));
+        } catch (Throwable e) {
+            // Un request cancelado por hedging no cuenta como error del proveedor
+            if (!Thread.currentThread().isInterrupted()) {
+                provider.stats().recordFailure();
+            }
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static CompletableFuture<Outcome> firstSuccessful(
+            CompletableFuture<Outcome> a, CompletableFuture<Outcome> b) {
+        CompletableFuture<Outcome> first = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<Outcome> candidate : List.of(a, b)) {
+            candidate.whenComplete((outcome, error) -> {
+                if (error == null) {
+                    first.complete(outcome);
+                } else if (failed.incrementAndGet() == 2) {
+                    first.completeExceptionally(error);
+                }
+            });
+        }
+        return first;
+    }
+}
@@ -0,0 +1,510 @@
+// ============================================================
+// store/CompactVectorStore.java — Vector store compacto
+// ============================================================
+// Alternativa a SimpleVectorStore pensada para corpus grandes.
+// SimpleVectorStore guarda un Document por chunk: String con el
+// texto, HashMap de metadata (repitiendo source/path) y un
+// float[] propio. Acá cada chunk es solo una fila en arrays
+// primitivos:
+//
+//   vectores   bloques de 1024 filas, normalizados al insertar
+//              (similitud coseno = producto punto)
+//   texto      comprimido off-heap (CompressedTextStore)
+//   metadata   un int que apunta a un MetadataDictionary
+//   id         UUID como dos long
+//
+// La búsqueda recorre los vectores y arma Documents solo para
+// los topK: solo ellos se descomprimen.
+//
+// Los embeddings de add() se piden en lotes (embed(List)), no de
+// a uno como SimpleVectorStore.
+//
+// similaritySearchBatch() puntúa muchas consultas juntas como una
+// multiplicación de matrices por bloques: un tile de 128 filas del
+// índice se compara contra 16 consultas mientras sigue en cache,
+// en vez de recorrer todo el índice desde memoria por consulta.
+//
+// SEGMENTOS (estilo LSM): las filas viven en segmentos inmutables
+// (ver Segment.java) y el índice es un Snapshot con la lista de
+// segmentos detrás de un AtomicReference:
+//   - add() llena segmentos privados de hasta segment-rows filas
+//     y los publica juntos con un CAS cuando terminaron todos los
+//     lotes: una búsqueda ve todo el add() o nada de él
+//   - delete() publica copias de los segmentos con tombstones
+//   - las búsquedas leen el snapshot actual sin locks: una ingesta
+//     grande no las frena ni las bloquea
+//   - un hilo de fondo fusiona los segmentos chicos cuando hay más
+//     de max-segments y reescribe los que tienen muchos borrados
+//   - al publicar una fusión, la metadata de las filas borradas
+//     que descartó se libera del MetadataDictionary
+// ============================================================
+
+package com.agentes.rag.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+public class CompactVectorStore implements VectorStore, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactVectorStore.class);
+
+    static final int QUERY_TILE = 16;
+
+    /** Un segmento con esta fracción de filas borradas se reescribe */
+    static final double MAX_DELETED_RATIO = 0.25;
+
+    /** Filas que se descomprimen juntas al fusionar */
+    private static final int MERGE_BATCH = 4096;
+
+    private final EmbeddingModel embeddingModel;
+    private final int embeddingBatchSize;
+    private final int textBlockBytes;
+    private final int compressionLevel;
+    private final int segmentRows;
+    private final int maxSegments;
+    private final MetadataDictionary metadata = new MetadataDictionary();
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    private final AtomicBoolean mergePending = new AtomicBoolean();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "vectorstore-merge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Lista de segmentos que ve una búsqueda; nunca se modifica, se reemplaza */
+    record Snapshot(List<Segment> segments, int dimensions) {
+        static final Snapshot EMPTY = new Snapshot(List.of(), -1);
+    }
+
+    public CompactVectorStore(EmbeddingModel embeddingModel, int embeddingBatchSize,
+                              int textBlockBytes, int compressionLevel) {
+        this(embeddingModel, embeddingBatchSize, textBlockBytes, compressionLevel, 4096, 8);
+    }
+
+    /**
+     * @param embeddingBatchSize Textos por llamada al modelo de embeddings
+     * @param textBlockBytes     Tamaño de bloque de texto antes de comprimir
+     * @param compressionLevel   Nivel de Deflate (1-9)
+     * @param segmentRows        Filas de un segmento antes de publicarlo
+     * @param maxSegments        Segmentos a partir de los cuales se fusionan los chicos
+     */
+    public CompactVectorStore(EmbeddingModel embeddingModel, int embeddingBatchSize,
+                              int textBlockBytes, int compressionLevel, int segmentRows, int maxSegments) {
+        this.embeddingModel = embeddingModel;
+        this.embeddingBatchSize = embeddingBatchSize;
+        this.textBlockBytes = textBlockBytes;
+        this.compressionLevel = compressionLevel;
+        this.segmentRows = Math.max(1, segmentRows);
+        this.maxSegments = Math.max(2, maxSegments);
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) return;
+
+        // Embeddings y compresión en segmentos privados: nadie los ve hasta publish(),
+        // que los publica todos juntos cuando ya se embebieron todos los lotes. Si un
+        // lote falla no queda nada de este add() en el índice.
+        List<Segment> sealed = new ArrayList<>();
+        IntStream.Builder metadataIds = IntStream.builder();
+        try {
+            Segment.Builder builder = null;
+            for (int from = 0; from < documents.size(); from += embeddingBatchSize) {
+                List<Document> batch = documents.subList(from, Math.min(documents.size(), from + embeddingBatchSize));
+                List<float[]> embeddings = embed(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    float[] vector = normalize(embeddings.get(i));
+                    if (builder == null) {
+                        builder = new Segment.Builder(vector.length, textBlockBytes, compressionLevel);
+                    }
+                    Document document = batch.get(i);
+                    int metadataId = metadata.intern(document.getMetadata());
+                    metadataIds.add(metadataId);
+                    builder.append(document.getId(), vector, document.getContent(), metadataId);
+                    if (builder.size() >= segmentRows) {
+                        sealed.add(builder.seal(generations.incrementAndGet()));
+                        builder = null;
+                    }
+                }
+            }
+            if (builder != null) {
+                sealed.add(builder.seal(generations.incrementAndGet()));
+            }
+            publish(sealed);
+        } catch (RuntimeException e) {
+            // Las filas nunca se publicaron: no cuentan como usuarias de su metadata
+            metadata.release(metadataIds.build().toArray());
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Boolean> delete(List<String> idList) {
+        Set<String> ids = new HashSet<>(idList);
+        while (true) {
+            Snapshot current = snapshot.get();
+            List<Segment> segments = new ArrayList<>(current.segments());
+            boolean any = false;
+            for (int i = 0; i < segments.size(); i++) {
+                Segment tombstoned = segments.get(i).withDeleted(ids::contains);
+                if (tombstoned != null) {
+                    segments.set(i, tombstoned);
+                    any = true;
+                }
+            }
+            if (!any) return Optional.of(false);
+            if (snapshot.compareAndSet(current, new Snapshot(List.copyOf(segments), current.dimensions()))) {
+                scheduleMerge();
+                return Optional.of(true);
+            }
+            // Otro add/delete/merge publicó antes: se recalcula sobre el snapshot nuevo
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (request.getFilterExpression() != null) {
+            throw new UnsupportedOperationException("CompactVectorStore no soporta filtros de metadata");
+        }
+        float[] query = normalize(embeddingModel.embed(request.getQuery()));
+
+        Snapshot current = snapshot.get();
+        if (current.segments().isEmpty()) return List.of();
+        checkDimensions(query, current.dimensions());
+
+        TopK top = new TopK(request.getTopK(), (float) request.getSimilarityThreshold());
+        List<Segment> segments = current.segments();
+        for (int s = 0; s < segments.size(); s++) {
+            segments.get(s).scan(query, s, top);
+        }
+        return toDocuments(segments, top);
+    }
+
+    /**
+     * Busca varias consultas ya embebidas en una sola pasada por el índice.
+     * Los tiles de consultas se reparten entre los cores.
+     *
+     * @return Los topK de cada consulta, en el mismo orden
+     */
+    public List<List<Document>> similaritySearchBatch(List<float[]> queries, int topK, double threshold) {
+        Snapshot current = snapshot.get();
+        if (current.segments().isEmpty()) {
+            return queries.stream().map(q -> List.<Document>of()).toList();
+        }
+        float[][] normalized = queries.stream().map(CompactVectorStore::normalize).toArray(float[][]::new);
+        for (float[] query : normalized) checkDimensions(query, current.dimensions());
+
+        TopK[] tops = new TopK[normalized.length];
+        Arrays.setAll(tops, q -> new TopK(topK, (float) threshold));
+        List<Segment> segments = current.segments();
+        int tiles = (normalized.length + QUERY_TILE - 1) / QUERY_TILE;
+        IntStream.range(0, tiles).parallel().forEach(tile -> {
+            int from = tile * QUERY_TILE;
+            int to = Math.min(normalized.length, from + QUERY_TILE);
+            for (int s = 0; s < segments.size(); s++) {
+                segments.get(s).scanTile(normalized, tops, from, to, s);
+            }
+        });
+
+        List<List<Document>> results = new ArrayList<>(tops.length);
+        for (TopK top : tops) {
+            results.add(toDocuments(segments, top));
+        }
+        return results;
+    }
+
+    /** Ocupación en memoria del store (para métricas) */
+    public Stats stats() {
+        Snapshot current = snapshot.get();
+        int chunks = 0;
+        int deletedChunks = 0;
+        long textRaw = 0;
+        long textStored = 0;
+        long textReserved = 0;
+        long vectorBytes = 0;
+        for (Segment segment : current.segments()) {
+            chunks += segment.liveRows();
+            deletedChunks += segment.deletedRows();
+            textRaw += segment.textRawBytes();
+            textStored += segment.textStoredBytes();
+            textReserved += segment.textReservedBytes();
+            vectorBytes += segment.vectorBytes();
+        }
+        return new Stats(chunks, deletedChunks, metadata.size(), textRaw, textStored, textReserved, vectorBytes,
+                current.segments().size(), merges.get());
+    }
+
+    /** Detiene el hilo de fusiones (Spring lo llama al cerrar el contexto) */
+    @Override
+    public void close() {
+        merger.shutdownNow();
+    }
+
+    /** Espera a que terminen las fusiones pendientes (benchmarks) */
+    public void awaitMerges() throws InterruptedException, ExecutionException {
+        do {
+            merger.submit(() -> { }).get();     // un solo hilo: corre después de lo encolado
+        } while (mergePending.get());
+    }
+
+    // ---- Escritura ----
+
+    private List<float[]> embed(List<Document> batch) {
+        return embeddingModel.embed(batch.stream()
+                .map(document -> document.getFormattedContent(MetadataMode.EMBED))
+                .toList());
+    }
+
+    /** Agrega los segmentos al snapshot en un solo paso: las búsquedas ven todos o ninguno */
+    private void publish(List<Segment> added) {
+        int dimensions = added.get(0).dimensions;
+        snapshot.updateAndGet(current -> {
+            if (current.dimensions() >= 0) checkDimensions(dimensions, current.dimensions());
+            List<Segment> segments = new ArrayList<>(current.segments());
+            segments.addAll(added);
+            return new Snapshot(List.copyOf(segments), dimensions);
+        });
+        scheduleMerge();
+    }
+
+    // ---- Fusión en segundo plano ----
+
+    private void scheduleMerge() {
+        if (mergePending.compareAndSet(false, true) && !merger.isShutdown()) {
+            merger.execute(() -> {
+                mergePending.set(false);
+                try {
+                    while (mergeOnce()) {
+                        // sigue mientras quede algo para fusionar
+                    }
+                } catch (RuntimeException e) {
+                    // El snapshot no cambió: las búsquedas siguen con los segmentos de antes
+                    log.warn("Falló la fusión de segmentos del vector store", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Una ronda: elige segmentos, los reescribe en uno nuevo sin las
+     * filas borradas y lo publica solo si nadie los tocó mientras tanto.
+     *
+     * @return true si publicó un cambio (puede haber otra ronda)
+     */
+    boolean mergeOnce() {
+        Snapshot current = snapshot.get();
+        List<Segment> victims = pickVictims(current.segments());
+        if (victims.isEmpty()) return false;
+
+        Segment merged = rewrite(victims, current.dimensions());
+        Set<Segment> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        replaced.addAll(victims);
+
+        while (true) {
+            Snapshot latest = snapshot.get();
+            List<Segment> segments = new ArrayList<>(latest.segments().size());
+            boolean inserted = false;
+            int found = 0;
+            for (Segment segment : latest.segments()) {
+                if (!replaced.contains(segment)) {
+                    segments.add(segment);
+                    continue;
+                }
+                found++;
+                if (!inserted && merged != null) {
+                    segments.add(merged);
+                    inserted = true;
+                }
+            }
+            // Un delete reemplazó alguno de los segmentos: la fusión quedó vieja, se reintenta
+            if (found != victims.size()) return true;
+            if (snapshot.compareAndSet(latest, new Snapshot(List.copyOf(segments), latest.dimensions()))) {
+                merges.incrementAndGet();
+                metadata.release(droppedMetadataIds(victims));
+                return true;
+            }
+        }
+    }
+
+    /** Metadata de las filas borradas que la fusión descartó (una entrada por fila) */
+    private static int[] droppedMetadataIds(List<Segment> victims) {
+        return victims.stream()
+                .flatMapToInt(segment -> IntStream.range(0, segment.size)
+                        .filter(segment::isDeleted)
+                        .map(segment::metadataId))
+                .toArray();
+    }
+
+    /** Segmentos con muchos borrados y, si sobran segmentos, los más chicos */
+    private List<Segment> pickVictims(List<Segment> segments) {
+        List<Segment> victims = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.deletedRows() > 0 && segment.deletedRows() >= segment.size * MAX_DELETED_RATIO) {
+                victims.add(segment);
+            }
+        }
+        int remaining = segments.size() - victims.size() + (victims.isEmpty() ? 0 : 1);
+        if (remaining > maxSegments) {
+            // Los más chicos hasta volver a la mitad: se fusiona poco volumen por ronda
+            List<Segment> bySize = new ArrayList<>(segments);
+            bySize.removeAll(victims);
+            bySize.sort(Comparator.comparingInt(Segment::liveRows));
+            int extra = Math.max(2, remaining - maxSegments / 2);
+            victims.addAll(bySize.subList(0, Math.min(extra, bySize.size())));
+        }
+        return victims.size() == 1 && victims.get(0).deletedRows() == 0 ? List.of() : victims;
+    }
+
+    /** Copia las filas vivas de los segmentos a uno nuevo (null si no queda ninguna) */
+    private Segment rewrite(List<Segment> victims, int dimensions) {
+        var builder = new Segment.Builder(dimensions, textBlockBytes, compressionLevel);
+        long generation = 0;
+        for (Segment segment : victims) {
+            generation = Math.max(generation, segment.generation);
+            int[] rows = IntStream.range(0, segment.size).filter(row -> !segment.isDeleted(row)).toArray();
+            for (int from = 0; from < rows.length; from += MERGE_BATCH) {
+                int to = Math.min(rows.length, from + MERGE_BATCH);
+                long[] refs = new long[to - from];
+                int[] lengths = new int[to - from];
+                for (int i = from; i < to; i++) {
+                    refs[i - from] = segment.textRef(rows[i]);
+                    lengths[i - from] = segment.textLength(rows[i]);
+                }
+                String[] contents = segment.texts().readAll(refs, lengths);
+                for (int i = from; i < to; i++) {
+                    int row = rows[i];
+                    builder.append(segment.id(row), segment.vector(row), contents[i - from], segment.metadataId(row));
+                }
+            }
+        }
+        return builder.size() == 0 ? null : builder.seal(generation);
+    }
+
+    // ---- Búsqueda ----
+
+    /** Descomprime el texto de los ganadores (un readAll por segmento) y arma los Documents */
+    private List<Document> toDocuments(List<Segment> segments, TopK top) {
+        String[] contents = new String[top.size];
+        Map<Integer, List<Integer>> bySegment = new HashMap<>();
+        for (int i = 0; i < top.size; i++) {
+            bySegment.computeIfAbsent(top.segments[i], s -> new ArrayList<>()).add(i);
+        }
+        bySegment.forEach((s, hits) -> {
+            Segment segment = segments.get(s);
+            long[] refs = new long[hits.size()];
+            int[] lengths = new int[hits.size()];
+            for (int h = 0; h < hits.size(); h++) {
+                refs[h] = segment.textRef(top.rows[hits.get(h)]);
+                lengths[h] = segment.textLength(top.rows[hits.get(h)]);
+            }
+            String[] texts = segment.texts().readAll(refs, lengths);
+            for (int h = 0; h < hits.size(); h++) {
+                contents[hits.get(h)] = texts[h];
+            }
+        });
+
+        List<Document> results = new ArrayList<>(top.size);
+        for (int i = 0; i < top.size; i++) {
+            Segment segment = segments.get(top.segments[i]);
+            int row = top.rows[i];
+            Map<String, Object> meta = new HashMap<>(metadata.get(segment.metadataId(row)));
+            meta.put("distance", 1 - top.scores[i]);     // igual que SimpleVectorStore
+            results.add(new Document(segment.id(row), contents[i], meta));
+        }
+        return results;
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) norm += v * v;
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) return normalized;
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static void checkDimensions(float[] vector, int dimensions) {
+        checkDimensions(vector.length, dimensions);
+    }
+
+    private static void checkDimensions(int length, int dimensions) {
+        if (length != dimensions) {
+            throw new IllegalArgumentException("Embedding de " + length
+                    + " dimensiones en un índice de " + dimensions);
+        }
+    }
+
+    /** Los k mejores puntajes, ordenados de mayor a menor (k es chico: inserción directa) */
+    static final class TopK {
+        final int[] segments;
+        final int[] rows;
+        final float[] scores;
+        final float threshold;
+        int size;
+
+        TopK(int k, float threshold) {
+            this.segments = new int[k];
+            this.rows = new int[k];
+            this.scores = new float[k];
+            this.threshold = threshold;
+        }
+
+        void offer(int segment, int row, float score) {
+            if (score < threshold || rows.length == 0) return;
+            if (size == rows.length && score <= scores[size - 1]) return;
+
+            int i = size == rows.length ? size - 1 : size++;
+            while (i > 0 && scores[i - 1] < score) {
+                segments[i] = segments[i - 1];
+                rows[i] = rows[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            segments[i] = segment;
+            rows[i] = row;
+            scores[i] = score;
+        }
+    }
+
+    public record Stats(
+            int chunks,
+            int deletedChunks,
+            int metadataMaps,          // mapas distintos (compartidos entre chunks)
+            long textRawBytes,
+            long textStoredBytes,      // comprimido off-heap
+            long textReservedBytes,    // capacidad reservada (slabs off-heap + bloques abiertos)
+            long vectorBytes,
+            int segments,              // segmentos en el snapshot actual
+            long merges                // fusiones publicadas desde el arranque
+    ) {}
+}
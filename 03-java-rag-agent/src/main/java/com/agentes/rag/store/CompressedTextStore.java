@@ -0,0 +1,247 @@
+// ============================================================
+// store/CompressedTextStore.java — Texto de chunks comprimido
+// ============================================================
+// Los chunks se concatenan en bloques de ~32 KB que se comprimen
+// con Deflate (nivel rápido) y se guardan FUERA del heap, en
+// slabs de ByteBuffer directos: el GC no los recorre ni los copia.
+//
+// Cada chunk es una referencia (bloque, offset, largo) y su texto
+// solo se descomprime cuando se pide, es decir, para los topK
+// resultados de una búsqueda. Un bloque guarda varios chunks
+// para que la compresión encuentre repeticiones entre ellos.
+//
+// El bloque en construcción queda sin comprimir (en el heap)
+// hasta llenarse o hasta flush().
+//
+// Los slabs crecen al doble desde 64 KB hasta 4 MB, y flush()
+// recorta el último a lo usado y suelta el bloque abierto: un
+// store chico (ej: un segmento de pocos chunks) reserva lo que
+// ocupa y no 4 MB + 32 KB.
+// ============================================================
+
+package com.agentes.rag.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public final class CompressedTextStore {
+
+    private static final int MIN_SLAB_BYTES = 64 << 10;
+    private static final int SLAB_BYTES = 4 << 20;
+
+    private final int blockBytes;
+    private final int level;
+
+    /** Slabs off-heap con los bloques comprimidos, uno detrás de otro */
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+
+    // Por bloque sellado: dónde está y cuánto mide
+    private int[] blockSlab = new int[64];
+    private int[] blockOffset = new int[64];
+    private int[] blockCompressed = new int[64];
+    private int[] blockRaw = new int[64];
+    private int blocks;
+
+    /** Bloque abierto (sin comprimir); null hasta el próximo append */
+    private byte[] open;
+    private int openSize;
+
+    private long rawBytes;
+    private long compressedBytes;
+
+    /**
+     * @param blockBytes Tamaño objetivo de un bloque sin comprimir
+     * @param level      Nivel de Deflate (1 = más rápido, 9 = más chico)
+     */
+    public CompressedTextStore(int blockBytes, int level) {
+        this.blockBytes = blockBytes;
+        this.level = level;
+    }
+
+    /**
+     * Agrega un texto.
+     *
+     * @return Referencia empaquetada: bloque (32 bits altos) + offset en el bloque
+     *         (32 bits bajos). El largo en bytes lo guarda quien llama.
+     */
+    public synchronized long append(byte[] utf8) {
+        if (openSize > 0 && openSize + utf8.length > blockBytes) {
+            seal();
+        }
+        if (open == null) {
+            open = new byte[blockBytes];
+        }
+        if (utf8.length > open.length) {
+            open = Arrays.copyOf(open, utf8.length);     // chunk más grande que un bloque
+        }
+        long ref = ((long) blocks << 32) | openSize;
+        System.arraycopy(utf8, 0, open, openSize, utf8.length);
+        openSize += utf8.length;
+        rawBytes += utf8.length;
+        return ref;
+    }
+
+    /** Lee un texto a partir de su referencia y largo */
+    public String read(long ref, int length) {
+        return read(ref, length, null);
+    }
+
+    /**
+     * Lee varios textos descomprimiendo cada bloque una sola vez.
+     * refs y lengths tienen el mismo tamaño; el resultado respeta su orden.
+     */
+    public String[] readAll(long[] refs, int[] lengths) {
+        String[] texts = new String[refs.length];
+        BlockCache cache = new BlockCache();
+        // En orden de referencia: los chunks del mismo bloque quedan juntos
+        Integer[] order = new Integer[refs.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> Long.compare(refs[a], refs[b]));
+        for (int i : order) {
+            texts[i] = read(refs[i], lengths[i], cache);
+        }
+        return texts;
+    }
+
+    /**
+     * Comprime el bloque abierto (ej: al terminar una ingesta), lo suelta
+     * y recorta el último slab a los bytes usados.
+     */
+    public synchronized void flush() {
+        if (openSize > 0) seal();
+        open = null;
+        int last = slabs.size() - 1;
+        if (last >= 0 && slabs.get(last).hasRemaining()) {
+            ByteBuffer slab = slabs.get(last);
+            ByteBuffer trimmed = ByteBuffer.allocateDirect(slab.position());
+            trimmed.put(slab.duplicate().flip());
+            slabs.set(last, trimmed);
+        }
+    }
+
+    public synchronized long rawBytes() {
+        return rawBytes;
+    }
+
+    /** Bytes ocupados: comprimidos off-heap + bloque abierto */
+    public synchronized long storedBytes() {
+        return compressedBytes + openSize;
+    }
+
+    /** Bytes reservados: capacidad de los slabs off-heap + bloque abierto en el heap */
+    public synchronized long reservedBytes() {
+        long reserved = open == null ? 0 : open.length;
+        for (ByteBuffer slab : slabs) {
+            reserved += slab.capacity();
+        }
+        return reserved;
+    }
+
+    // ---- Bloques ----
+
+    private String read(long ref, int length, BlockCache cache) {
+        int block = (int) (ref >>> 32);
+        int offset = (int) ref;
+        byte[] raw;
+        synchronized (this) {
+            if (block == blocks) {
+                return new String(open, offset, length, StandardCharsets.UTF_8);
+            }
+        }
+        if (cache != null && cache.block == block) {
+            raw = cache.raw;
+        } else {
+            raw = inflate(block);
+            if (cache != null) {
+                cache.block = block;
+                cache.raw = raw;
+            }
+        }
+        return new String(raw, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private void seal() {
+        var deflater = new Deflater(level);
+        try {
+            deflater.setInput(open, 0, openSize);
+            deflater.finish();
+            byte[] compressed = new byte[openSize + openSize / 1000 + 64];
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == compressed.length) compressed = Arrays.copyOf(compressed, size * 2);
+                size += deflater.deflate(compressed, size, compressed.length - size);
+            }
+            ByteBuffer slab = slabWithRoom(size);
+            int offset = slab.position();
+            slab.put(compressed, 0, size);
+
+            ensureBlockCapacity();
+            blockSlab[blocks] = slabs.size() - 1;
+            blockOffset[blocks] = offset;
+            blockCompressed[blocks] = size;
+            blockRaw[blocks] = openSize;
+            blocks++;
+            compressedBytes += size;
+        } finally {
+            deflater.end();
+        }
+        open = null;
+        openSize = 0;
+    }
+
+    private byte[] inflate(int block) {
+        ByteBuffer input;
+        byte[] raw;
+        synchronized (this) {
+            input = slabs.get(blockSlab[block])
+                    .slice(blockOffset[block], blockCompressed[block]);
+            raw = new byte[blockRaw[block]];
+        }
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            int size = 0;
+            while (size < raw.length && !inflater.finished()) {
+                size += inflater.inflate(raw, size, raw.length - size);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Bloque de texto corrupto: " + block, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private ByteBuffer slabWithRoom(int size) {
+        ByteBuffer current = slabs.isEmpty() ? null : slabs.get(slabs.size() - 1);
+        if (current == null || current.remaining() < size) {
+            int capacity = current == null ? MIN_SLAB_BYTES
+                    : Math.min(SLAB_BYTES, Math.max(MIN_SLAB_BYTES, current.capacity() * 2));
+            current = ByteBuffer.allocateDirect(Math.max(capacity, size));
+            slabs.add(current);
+        }
+        return current;
+    }
+
+    private void ensureBlockCapacity() {
+        if (blocks == blockSlab.length) {
+            int capacity = blocks * 2;
+            blockSlab = Arrays.copyOf(blockSlab, capacity);
+            blockOffset = Arrays.copyOf(blockOffset, capacity);
+            blockCompressed = Arrays.copyOf(blockCompressed, capacity);
+            blockRaw = Arrays.copyOf(blockRaw, capacity);
+        }
+    }
+
+    /** Último bloque descomprimido dentro de un readAll */
+    private static final class BlockCache {
+        int block = -1;
+        byte[] raw;
+    }
+}
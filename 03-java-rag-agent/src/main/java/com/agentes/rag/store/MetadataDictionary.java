@@ -0,0 +1,97 @@
+// ============================================================
+// store/MetadataDictionary.java — Metadata deduplicada por ID
+// ============================================================
+// Todos los chunks de un archivo tienen la MISMA metadata
+// (source, path). En vez de un HashMap por chunk, cada mapa
+// distinto se guarda una sola vez y el chunk referencia su ID
+// (un int). 10.000 chunks de 50 archivos = 50 mapas.
+//
+// Las claves y valores también se internan, así dos mapas que
+// comparten "source" no duplican el String.
+//
+// Cada mapa cuenta las filas que lo usan: intern() suma una y
+// release() resta las filas que una fusión descartó (o las de un
+// add() que falló). Un mapa sin filas se elimina, así reingestar
+// archivos editados no hace crecer el diccionario para siempre.
+// Los IDs no se reutilizan: una búsqueda sobre un snapshot viejo
+// nunca recibe la metadata de otro archivo.
+// ============================================================
+
+package com.agentes.rag.store;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class MetadataDictionary {
+
+    private static final class Entry {
+        final Map<String, Object> map;
+        int rows;
+
+        Entry(Map<String, Object> map) {
+            this.map = map;
+        }
+    }
+
+    private final Map<Object, Object> values = new HashMap<>();
+    private final Map<Map<String, Object>, Integer> ids = new HashMap<>();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private int nextId;
+
+    /** ID del mapa (lo agrega si es nuevo) para UNA fila más que lo usa */
+    public synchronized int intern(Map<String, Object> metadata) {
+        // TreeMap: mismo contenido en distinto orden = mismo mapa
+        Map<String, Object> canonical = new TreeMap<>();
+        metadata.forEach((key, value) -> canonical.put((String) internValue(key), internValue(value)));
+
+        Integer id = ids.get(canonical);
+        if (id == null) {
+            Map<String, Object> frozen = Map.copyOf(canonical);
+            id = nextId++;
+            ids.put(frozen, id);
+            entries.put(id, new Entry(frozen));
+        }
+        entries.get(id).rows++;
+        return id;
+    }
+
+    /** Resta una fila por cada ID (repetidos = varias filas) y elimina los mapas que quedan sin filas */
+    public synchronized void release(int[] rowIds) {
+        boolean removed = false;
+        for (int id : rowIds) {
+            Entry entry = entries.get(id);
+            if (entry == null || --entry.rows > 0) continue;
+            entries.remove(id);
+            ids.remove(entry.map);
+            removed = true;
+        }
+        if (removed) {
+            // Los Strings internados que ya no usa ningún mapa también se liberan
+            values.clear();
+            entries.values().forEach(entry -> entry.map.forEach((key, value) -> {
+                values.put(key, key);
+                values.put(value, value);
+            }));
+        }
+    }
+
+    /**
+     * Mapa inmutable compartido por todos los chunks con este ID. Vacío si
+     * ya se eliminó: solo pasa con una búsqueda sobre un snapshot anterior
+     * al borrado de esa fila.
+     */
+    public synchronized Map<String, Object> get(int id) {
+        Entry entry = entries.get(id);
+        return entry == null ? Map.of() : entry.map;
+    }
+
+    /** Mapas distintos almacenados */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Object internValue(Object value) {
+        return value == null ? "" : values.computeIfAbsent(value, v -> v);
+    }
+}
@@ -0,0 +1,288 @@
+// ============================================================
+// store/Segment.java — Segmento inmutable del índice
+// ============================================================
+// Un segmento es un conjunto de chunks que ya no cambia: sus
+// arrays se escriben en Segment.Builder (privado de quien ingesta)
+// y después de seal() nadie los modifica. Por eso se pueden
+// buscar desde muchos hilos sin locks.
+//
+// Cada segmento tiene su propio CompressedTextStore. Los borrados
+// no tocan el segmento: withDeleted() devuelve una copia que
+// comparte los arrays y trae un BitSet de tombstones nuevo.
+// ============================================================
+
+package com.agentes.rag.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+final class Segment {
+
+    static final int ROWS_PER_BLOCK = 1024;
+    static final int ROW_TILE = 128;
+
+    final long generation;
+    final int dimensions;
+    final int size;
+    private final float[][] vectorBlocks;
+    private final long[] idHigh;
+    private final long[] idLow;
+    private final Map<Integer, String> customIds;       // ids que no son UUID
+    private final long[] textRefs;
+    private final int[] textLengths;
+    private final int[] metadataIds;
+    private final CompressedTextStore texts;
+    private final BitSet deleted;                       // no se modifica: copy-on-write
+    private final int deletedCount;
+
+    private Segment(Builder builder, long generation) {
+        this.generation = generation;
+        this.dimensions = builder.dimensions;
+        this.size = builder.size;
+        this.vectorBlocks = builder.vectorBlocks;
+        this.idHigh = Arrays.copyOf(builder.idHigh, size);
+        this.idLow = Arrays.copyOf(builder.idLow, size);
+        this.customIds = Map.copyOf(builder.customIds);
+        this.textRefs = Arrays.copyOf(builder.textRefs, size);
+        this.textLengths = Arrays.copyOf(builder.textLengths, size);
+        this.metadataIds = Arrays.copyOf(builder.metadataIds, size);
+        this.texts = builder.texts;
+        this.deleted = new BitSet();
+        this.deletedCount = 0;
+    }
+
+    private Segment(Segment base, BitSet deleted) {
+        this.generation = base.generation;
+        this.dimensions = base.dimensions;
+        this.size = base.size;
+        this.vectorBlocks = base.vectorBlocks;
+        this.idHigh = base.idHigh;
+        this.idLow = base.idLow;
+        this.customIds = base.customIds;
+        this.textRefs = base.textRefs;
+        this.textLengths = base.textLengths;
+        this.metadataIds = base.metadataIds;
+        this.texts = base.texts;
+        this.deleted = deleted;
+        this.deletedCount = deleted.cardinality();
+    }
+
+    // ---- Lectura ----
+
+    int liveRows() {
+        return size - deletedCount;
+    }
+
+    int deletedRows() {
+        return deletedCount;
+    }
+
+    boolean isDeleted(int row) {
+        return deleted.get(row);
+    }
+
+    String id(int row) {
+        String custom = customIds.get(row);
+        return custom != null ? custom : new UUID(idHigh[row], idLow[row]).toString();
+    }
+
+    int metadataId(int row) {
+        return metadataIds[row];
+    }
+
+    long textRef(int row) {
+        return textRefs[row];
+    }
+
+    int textLength(int row) {
+        return textLengths[row];
+    }
+
+    CompressedTextStore texts() {
+        return texts;
+    }
+
+    float[] vector(int row) {
+        int offset = (row % ROWS_PER_BLOCK) * dimensions;
+        return Arrays.copyOfRange(vectorBlocks[row / ROWS_PER_BLOCK], offset, offset + dimensions);
+    }
+
+    long textStoredBytes() {
+        return texts.storedBytes();
+    }
+
+    long textReservedBytes() {
+        return texts.reservedBytes();
+    }
+
+    long textRawBytes() {
+        return texts.rawBytes();
+    }
+
+    long vectorBytes() {
+        long floats = 0;
+        for (float[] block : vectorBlocks) floats += block.length;
+        return floats * Float.BYTES;
+    }
+
+    /** Copia con las filas cuyo id cumple matches marcadas como borradas (null si no hay ninguna) */
+    Segment withDeleted(Predicate<String> matches) {
+        BitSet copy = null;
+        for (int row = 0; row < size; row++) {
+            if (!deleted.get(row) && matches.test(id(row))) {
+                if (copy == null) copy = (BitSet) deleted.clone();
+                copy.set(row);
+            }
+        }
+        return copy == null ? null : new Segment(this, copy);
+    }
+
+    // ---- Búsqueda ----
+
+    /** Producto punto de la consulta contra cada fila viva */
+    void scan(float[] query, int segment, CompactVectorStore.TopK top) {
+        for (int block = 0; block < vectorBlocks.length; block++) {
+            float[] vectors = vectorBlocks[block];
+            int base = block * ROWS_PER_BLOCK;
+            int rows = Math.min(ROWS_PER_BLOCK, size - base);
+            for (int r = 0; r < rows; r++) {
+                if (deletedCount > 0 && deleted.get(base + r)) continue;
+                top.offer(segment, base + r, dot(query, vectors, r * dimensions, dimensions));
+            }
+        }
+    }
+
+    /**
+     * Consultas [from, to) contra el segmento: para cada tile de filas,
+     * todas las consultas antes de pasar al siguiente, así las filas se
+     * leen de memoria una vez por tile de consultas.
+     */
+    void scanTile(float[][] queries, CompactVectorStore.TopK[] tops, int from, int to, int segment) {
+        for (int block = 0; block < vectorBlocks.length; block++) {
+            float[] vectors = vectorBlocks[block];
+            int base = block * ROWS_PER_BLOCK;
+            int rows = Math.min(ROWS_PER_BLOCK, size - base);
+            for (int r0 = 0; r0 < rows; r0 += ROW_TILE) {
+                int r1 = Math.min(rows, r0 + ROW_TILE);
+                for (int q = from; q < to; q++) {
+                    float[] query = queries[q];
+                    CompactVectorStore.TopK top = tops[q];
+                    for (int r = r0; r < r1; r++) {
+                        if (deletedCount > 0 && deleted.get(base + r)) continue;
+                        top.offer(segment, base + r, dot(query, vectors, r * dimensions, dimensions));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Cuatro acumuladores: menos dependencia entre iteraciones, el JIT lo aprovecha mejor */
+    static float dot(float[] query, float[] vectors, int offset, int dimensions) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int d = 0;
+        for (; d + 3 < dimensions; d += 4) {
+            s0 += query[d] * vectors[offset + d];
+            s1 += query[d + 1] * vectors[offset + d + 1];
+            s2 += query[d + 2] * vectors[offset + d + 2];
+            s3 += query[d + 3] * vectors[offset + d + 3];
+        }
+        for (; d < dimensions; d++) {
+            s0 += query[d] * vectors[offset + d];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // ---- Construcción ----
+
+    /** Segmento en construcción: solo lo ve el hilo que ingesta */
+    static final class Builder {
+
+        private final int dimensions;
+        private final CompressedTextStore texts;
+        private float[][] vectorBlocks = new float[0][];
+        private long[] idHigh = new long[256];
+        private long[] idLow = new long[256];
+        private final Map<Integer, String> customIds = new HashMap<>();
+        private long[] textRefs = new long[256];
+        private int[] textLengths = new int[256];
+        private int[] metadataIds = new int[256];
+        private int size;
+
+        Builder(int dimensions, int textBlockBytes, int compressionLevel) {
+            this.dimensions = dimensions;
+            this.texts = new CompressedTextStore(textBlockBytes, compressionLevel);
+        }
+
+        /** @param vector Ya normalizado */
+        void append(String id, float[] vector, String content, int metadataId) {
+            if (vector.length != dimensions) {
+                throw new IllegalArgumentException("Embedding de " + vector.length
+                        + " dimensiones en un índice de " + dimensions);
+            }
+            ensureCapacity();
+
+            int row = size;
+            int block = row / ROWS_PER_BLOCK;
+            if (block == vectorBlocks.length) {
+                vectorBlocks = Arrays.copyOf(vectorBlocks, block + 1);
+                vectorBlocks[block] = new float[ROWS_PER_BLOCK * dimensions];
+            }
+            System.arraycopy(vector, 0, vectorBlocks[block], (row % ROWS_PER_BLOCK) * dimensions, dimensions);
+
+            setId(row, id);
+            byte[] utf8 = content.getBytes(StandardCharsets.UTF_8);
+            textRefs[row] = texts.append(utf8);
+            textLengths[row] = utf8.length;
+            metadataIds[row] = metadataId;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Cierra el segmento: comprime el último bloque de texto (recorta su slab),
+         * recorta el último bloque de vectores a sus filas y congela los arrays.
+         */
+        Segment seal(long generation) {
+            texts.flush();
+            int lastRows = size % ROWS_PER_BLOCK;
+            if (lastRows > 0) {
+                int last = vectorBlocks.length - 1;
+                vectorBlocks[last] = Arrays.copyOf(vectorBlocks[last], lastRows * dimensions);
+            }
+            return new Segment(this, generation);
+        }
+
+        private void ensureCapacity() {
+            if (size == idHigh.length) {
+                int capacity = size * 2;
+                idHigh = Arrays.copyOf(idHigh, capacity);
+                idLow = Arrays.copyOf(idLow, capacity);
+                textRefs = Arrays.copyOf(textRefs, capacity);
+                textLengths = Arrays.copyOf(textLengths, capacity);
+                metadataIds = Arrays.copyOf(metadataIds, capacity);
+            }
+        }
+
+        private void setId(int row, String id) {
+            try {
+                UUID uuid = UUID.fromString(id);
+                if (uuid.toString().equals(id)) {
+                    idHigh[row] = uuid.getMostSignificantBits();
+                    idLow[row] = uuid.getLeastSignificantBits();
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                // no es un UUID: se guarda aparte
+            }
+            customIds.put(row, id);
+        }
+    }
+}
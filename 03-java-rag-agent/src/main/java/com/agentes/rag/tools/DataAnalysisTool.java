@@ -4,54 +4,85 @@
 // (ver docs/summary.md#tool-calling-typescript-vs-java)
 // Ejemplo de un tool que el agente puede usar para
 // analizar datos extraídos de documentos.
+//
+// Dos modos:
+//   - values: el LLM escribe los números en el JSON (series chicas)
+//   - file:   un CSV/TSV de la carpeta de documentos; se analiza
+//             localmente (ver analytics/TabularAnalyzer.java) y
+//             solo el resultado vuelve al LLM
 // ============================================================
 
 package com.agentes.rag.tools;
 
+import com.agentes.rag.analytics.RunningStats;
+import com.agentes.rag.analytics.TabularAnalyzer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Description;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 @Configuration
 public class DataAnalysisTool {
 
+    private final TabularAnalyzer tabularAnalyzer;
+
+    public DataAnalysisTool(TabularAnalyzer tabularAnalyzer) {
+        this.tabularAnalyzer = tabularAnalyzer;
+    }
+
     @Bean
     @Description("Analiza datos numéricos: calcula estadísticas como media, mediana, " +
-                 "máximo, mínimo y desviación estándar de una serie de números.")
+                 "percentiles, máximo, mínimo y desviación estándar. Recibe una serie de números " +
+                 "(values) o el nombre de un archivo CSV/TSV de los documentos (file), con la " +
+                 "columna a analizar (column) y opcionalmente una columna para agrupar (groupBy).")
     public Function<AnalysisRequest, AnalysisResponse> analyzeData() {
         return request -> {
+            if (request.file() != null && !request.file().isBlank()) {
+                return analyzeFile(request);
+            }
+
             double[] values = request.values();
             if (values == null || values.length == 0) {
-                return new AnalysisResponse(0, 0, 0, 0, 0, 0, "No se proporcionaron datos");
+                return AnalysisResponse.error("No se proporcionaron datos");
             }
 
-            double sum = Arrays.stream(values).sum();
-            double mean = sum / values.length;
-            double min = Arrays.stream(values).min().orElse(0);
-            double max = Arrays.stream(values).max().orElse(0);
-
-            double[] sorted = Arrays.stream(values).sorted().toArray();
-            double median = sorted.length % 2 == 0
-                    ? (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2
-                    : sorted[sorted.length / 2];
-
-            double variance = Arrays.stream(values)
-                    .map(v -> Math.pow(v - mean, 2))
-                    .sum() / values.length;
-            double stdDev = Math.sqrt(variance);
-
-            return new AnalysisResponse(mean, median, min, max, stdDev, values.length,
+            TabularAnalyzer.Summary summary = TabularAnalyzer.summarize(values);
+            return AnalysisResponse.of(summary, null, List.of(),
                     String.format("Análisis de %d valores completado", values.length));
         };
     }
 
+    private AnalysisResponse analyzeFile(AnalysisRequest request) {
+        try {
+            TabularAnalyzer.Result result = tabularAnalyzer.analyze(request.file(), request.column(), request.groupBy());
+            return AnalysisResponse.of(result.summary(), result.column(), result.groups(),
+                    String.format("Análisis de la columna '%s' de %s (%d filas, %d con valor)%s. Columnas: %s",
+                            result.column(), result.file(), result.rows(), result.summary().stats().count(),
+                            result.groupBy() == null ? "" : " agrupado por '" + result.groupBy() + "'",
+                            result.columns()));
+        } catch (NoSuchFileException e) {
+            return AnalysisResponse.error("No se encontró el archivo " + e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            return AnalysisResponse.error(e.getMessage());
+        }
+    }
+
     public record AnalysisRequest(
             double[] values,
-            String description
-    ) {}
+            String description,
+            String file,            // CSV/TSV relativo a la carpeta de documentos
+            String column,          // columna numérica a analizar
+            String groupBy          // columna por la que agrupar (opcional)
+    ) {
+        public AnalysisRequest(double[] values, String description) {
+            this(values, description, null, null, null);
+        }
+    }
 
     public record AnalysisResponse(
             double mean,
@@ -59,7 +90,21 @@ public class DataAnalysisTool {
             double min,
             double max,
             double standardDeviation,
-            int count,
-            String summary
-    ) {}
+            long count,
+            String summary,
+            Map<String, Double> percentiles,
+            String column,
+            List<TabularAnalyzer.Group> groups
+    ) {
+        static AnalysisResponse of(TabularAnalyzer.Summary summary, String column,
+                                   List<TabularAnalyzer.Group> groups, String text) {
+            RunningStats stats = summary.stats();
+            return new AnalysisResponse(stats.mean(), summary.percentiles().get("p50"), stats.min(), stats.max(),
+                    stats.standardDeviation(), stats.count(), text, summary.percentiles(), column, groups);
+        }
+
+        static AnalysisResponse error(String message) {
+            return new AnalysisResponse(0, 0, 0, 0, 0, 0, message, Map.of(), null, List.of());
+        }
+    }
 }
@@ -0,0 +1,350 @@
+// ============================================================
+// tools/ToolExecutor.java — Ejecución paralela y cacheada de tools
+// ============================================================
+// (ver docs/tool-calling-reference.md)
+// Reemplaza el tool calling loop interno de Spring AI, tanto en
+// el chat bloqueante como en streaming. Con proxyToolCalls=true el modelo DEVUELVE
+// los tool calls en lugar de ejecutarlos, y este servicio:
+//
+//   1. Ejecuta EN PARALELO todos los tool calls de un mismo turno
+//      del asistente (un turno tarda lo que el tool más lento,
+//      no la suma de todos)
+//   2. Memoiza resultados de tools puros por (tool, argumentos)
+//      en un cache LRU acotado; si el tool recibe un "file", la
+//      clave incluye su fecha de modificación y tamaño
+//   3. Registra la latencia de cada tool
+//   4. Un tool que falla (o que no existe) devuelve un error como
+//      resultado de SU tool call: el modelo puede corregirse y los
+//      demás tool calls del turno no se pierden
+//
+// Luego devuelve los resultados al modelo y repite hasta que
+// responde sin pedir más tools. En streaming cada ronda es un
+// stream: los tokens de texto se emiten apenas llegan y, si la
+// ronda terminó pidiendo tools, se ejecutan y se abre la siguiente.
+// ============================================================
+
+package com.agentes.rag.tools;
+
+import com.agentes.rag.analytics.TabularAnalyzer;
+import com.agentes.rag.observability.RagEvents;
+import com.agentes.rag.observability.RagMetrics;
+import com.agentes.rag.observability.RequestContext;
+import com.agentes.rag.observability.StageTimer;
+import com.agentes.rag.rag.DocumentIngestionService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.ai.model.function.FunctionCallbackContext;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+@Service
+public class ToolExecutor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolExecutor.class);
+
+    private final ChatModel chatModel;
+    private final FunctionCallbackContext functionCallbackContext;
+    private final DocumentIngestionService ingestionService;
+    private final TabularAnalyzer tabularAnalyzer;
+    private final RagMetrics metrics;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Set<String> cacheableTools;
+    private final int maxRounds;
+    private final Map<String, String> resultCache;
+    private final Map<String, ToolStats> stats = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public ToolExecutor(
+            ChatModel chatModel,
+            FunctionCallbackContext functionCallbackContext,
+            DocumentIngestionService ingestionService,
+            TabularAnalyzer tabularAnalyzer,
+            RagMetrics metrics,
+            @Value("${app.tools.cacheable:analyzeData,searchDocuments}") String cacheableTools,
+            @Value("${app.tools.cache-size:256}") int cacheSize,
+            @Value("${app.tools.max-rounds:5}") int maxRounds) {
+        this.chatModel = chatModel;
+        this.functionCallbackContext = functionCallbackContext;
+        this.ingestionService = ingestionService;
+        this.tabularAnalyzer = tabularAnalyzer;
+        this.metrics = metrics;
+        this.cacheableTools = Arrays.stream(cacheableTools.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.maxRounds = maxRounds;
+        // LRU acotado: LinkedHashMap en orden de acceso que descarta el más viejo
+        this.resultCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        metrics.cacheGets("tool-results", this, t -> t.cacheHits.sum(), t -> t.cacheMisses.sum());
+    }
+
+    /**
+     * Llama al modelo con los tools indicados y resuelve los tool calls
+     * hasta obtener una respuesta final.
+     *
+     * @param messages  Conversación inicial (system + user); se le agregan los turnos de tools
+     * @param functions Nombres de los beans Function expuestos como tools
+     * @param timer     Acumula el tiempo de las etapas "llm" y "tools"
+     */
+    public ChatResponse call(List<Message> messages, Set<String> functions, StageTimer timer) {
+        var options = OpenAiChatOptions.builder()
+                .withFunctions(functions)
+                .withProxyToolCalls(true)
+                .build();
+
+        List<Message> conversation = new ArrayList<>(messages);
+        for (int round = 0; round < maxRounds; round++) {
+            ChatResponse response = timer.time("llm", () -> RagEvents.llmCall("generation", conversation.size(),
+                    () -> chatModel.call(new Prompt(conversation, options))));
+            metrics.recordUsage(response);
+            if (!response.hasToolCalls()) {
+                return response;
+            }
+
+            AssistantMessage assistant = response.getResult().getOutput();
+            conversation.add(assistant);
+            conversation.add(timer.time("tools", () -> executeAll(assistant.getToolCalls())));
+        }
+        throw new IllegalStateException("El modelo superó " + maxRounds + " rondas de tool calls");
+    }
+
+    /**
+     * Igual que call() pero emitiendo el texto de la respuesta token a token.
+     * Los tool calls de cada ronda se ejecutan igual que en call() (en
+     * paralelo y con cache) sin bloquear el hilo del stream.
+     */
+    public Flux<String> stream(List<Message> messages, Set<String> functions) {
+        var options = OpenAiChatOptions.builder()
+                .withFunctions(functions)
+                .withProxyToolCalls(true)
+                .build();
+        return Flux.defer(() -> streamRound(new ArrayList<>(messages), options, 0));
+    }
+
+    private Flux<String> streamRound(List<Message> conversation, OpenAiChatOptions options, int round) {
+        if (round >= maxRounds) {
+            return Flux.error(new IllegalStateException("El modelo superó " + maxRounds + " rondas de tool calls"));
+        }
+        List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>();
+
+        Flux<String> tokens = chatModel.stream(new Prompt(List.copyOf(conversation), options))
+                .doOnNext(metrics::recordUsage)
+                .filter(response -> response.getResult() != null && response.getResult().getOutput() != null)
+                .map(response -> {
+                    AssistantMessage output = response.getResult().getOutput();
+                    if (output.hasToolCalls()) toolCalls.addAll(output.getToolCalls());
+                    return output.getContent() == null ? "" : output.getContent();
+                })
+                .filter(token -> !token.isEmpty());
+
+        // Al cerrar la ronda: sin tool calls es la respuesta final; si no, ejecutarlos y seguir
+        return tokens.concatWith(Flux.defer(() -> {
+            if (toolCalls.isEmpty()) {
+                return Flux.empty();
+            }
+            List<AssistantMessage.ToolCall> calls = List.copyOf(toolCalls);
+            conversation.add(new AssistantMessage("", Map.of(), calls));
+            return Mono.fromFuture(() -> CompletableFuture.supplyAsync(
+                            RequestContext.wrap(() -> executeAll(calls)), executor))
+                    .flatMapMany(results -> {
+                        conversation.add(results);
+                        return streamRound(conversation, options, round + 1);
+                    });
+        }));
+    }
+
+    /** Latencia y uso del cache por tool (para /api/tools/stats) */
+    public Map<String, ToolStats.Snapshot> stats() {
+        return new TreeMap<>(stats.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().snapshot())));
+    }
+
+    public void clearCache() {
+        synchronized (resultCache) {
+            resultCache.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // ---- Ejecución ----
+
+    /** Ejecuta todos los tool calls del turno en paralelo, respetando el orden en la respuesta */
+    private ToolResponseMessage executeAll(List<AssistantMessage.ToolCall> toolCalls) {
+        List<CompletableFuture<ToolResponseMessage.ToolResponse>> futures = toolCalls.stream()
+                .map(call -> toolCalls.size() == 1
+                        ? CompletableFuture.completedFuture(execute(call))
+                        : CompletableFuture.supplyAsync(RequestContext.wrap(() -> execute(call)), executor))
+                .toList();
+
+        try {
+            return new ToolResponseMessage(futures.stream().map(CompletableFuture::join).toList());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    private ToolResponseMessage.ToolResponse execute(AssistantMessage.ToolCall call) {
+        var event = new RagEvents.ToolInvocation();
+        event.begin();
+        ToolResponseMessage.ToolResponse response = null;
+        try {
+            response = executeTool(call, event);
+            return response;
+        } catch (RuntimeException e) {
+            log.warn("Tool '{}' falló: {}", call.name(), e.getMessage());
+            return new ToolResponseMessage.ToolResponse(call.id(), call.name(), errorResult(call, e));
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.requestId = RequestContext.requestId();
+                event.tool = call.name();
+                event.argumentsLength = call.arguments() == null ? 0 : call.arguments().length();
+                event.resultLength = response == null ? 0 : response.responseData().length();
+                event.outcome = response == null ? "error" : "ok";
+                event.commit();
+            }
+        }
+    }
+
+    private ToolResponseMessage.ToolResponse executeTool(AssistantMessage.ToolCall call, RagEvents.ToolInvocation event) {
+        FunctionCallback callback = functionCallbackContext.getFunctionCallback(call.name(), null);
+        if (callback == null) {
+            throw new IllegalArgumentException("No existe el tool '" + call.name() + "'");
+        }
+        ToolStats toolStats = stats.computeIfAbsent(call.name(), name -> new ToolStats());
+
+        String cacheKey = cacheableTools.contains(call.name()) ? cacheKey(call) : null;
+        if (cacheKey != null) {
+            String cached;
+            synchronized (resultCache) {
+                cached = resultCache.get(cacheKey);
+            }
+            if (cached != null) {
+                toolStats.cacheHits.increment();
+                cacheHits.increment();
+                event.cached = true;
+                return new ToolResponseMessage.ToolResponse(call.id(), call.name(), cached);
+            }
+            cacheMisses.increment();
+        }
+
+        long start = System.nanoTime();
+        String result = callback.call(call.arguments());
+        long elapsed = System.nanoTime() - start;
+        toolStats.record(elapsed);
+        metrics.timer("rag.tool.duration", "tool", call.name()).record(elapsed, TimeUnit.NANOSECONDS);
+
+        if (cacheKey != null) {
+            synchronized (resultCache) {
+                resultCache.put(cacheKey, result);
+            }
+        }
+        return new ToolResponseMessage.ToolResponse(call.id(), call.name(), result);
+    }
+
+    /** Resultado JSON que ve el modelo cuando su tool call falla */
+    private String errorResult(AssistantMessage.ToolCall call, RuntimeException e) {
+        var error = objectMapper.createObjectNode()
+                .put("error", "El tool '" + call.name() + "' falló: "
+                        + (e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
+        return error.toString();
+    }
+
+    /**
+     * Clave: tool + argumentos JSON normalizados (sin espacios) + versión del índice,
+     * para que searchDocuments no devuelva resultados de antes de una ingesta.
+     * Con un argumento "file" (analyzeData) suma la versión del archivo, para que
+     * un CSV editado no devuelva estadísticas viejas.
+     *
+     * @return null si el archivo no se puede leer: no se cachea
+     */
+    private String cacheKey(AssistantMessage.ToolCall call) {
+        String arguments;
+        String fileVersion = "";
+        try {
+            JsonNode tree = objectMapper.readTree(call.arguments());
+            arguments = tree.toString();
+            String file = tree.path("file").asText("");
+            if (!file.isBlank()) {
+                fileVersion = tabularAnalyzer.fileVersion(file);
+            }
+        } catch (JsonProcessingException e) {
+            arguments = call.arguments();
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        return call.name() + '\u0000' + ingestionService.indexVersion() + '\u0000' + fileVersion
+                + '\u0000' + arguments;
+    }
+
+    /** Latencia acumulada de un tool */
+    public static class ToolStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder cacheHits = new LongAdder();
+
+        void record(long elapsedNanos) {
+            calls.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+        }
+
+        Snapshot snapshot() {
+            long n = calls.sum();
+            return new Snapshot(n, cacheHits.sum(),
+                    n == 0 ? 0 : totalNanos.sum() / n / 1_000_000.0,
+                    maxNanos.get() / 1_000_000.0);
+        }
+
+        public record Snapshot(
+                long calls,
+                long cacheHits,
+                double avgMillis,
+                double maxMillis
+        ) {}
+    }
+}
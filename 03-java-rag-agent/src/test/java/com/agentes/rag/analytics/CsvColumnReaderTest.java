@@ -0,0 +1,69 @@
+// ============================================================
+// analytics/CsvColumnReaderTest.java — Encabezados y BOM
+// ============================================================
+// Excel y muchos exportadores escriben el BOM UTF-8 (EF BB BF)
+// al principio del archivo. No puede terminar pegado al nombre
+// de la primera columna.
+// ============================================================
+
+package com.agentes.rag.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvColumnReaderTest {
+
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    @TempDir
+    Path dir;
+
+    private final CsvColumnReader reader = new CsvColumnReader(1000);
+
+    @Test
+    void bomIsNotPartOfTheFirstHeader() throws IOException {
+        Path file = write("ventas.csv", BOM, "name,amount\nana,10\nbeto,20\n");
+
+        ColumnarTable table = reader.read(file);
+
+        assertThat(table.columns().get(0).name()).isEqualTo("name");
+        assertThat(table.column("name")).isNotNull();
+        assertThat(table.column("name").isNumeric()).isFalse();
+        assertThat(table.column("amount").values()).containsExactly(10.0, 20.0);
+        assertThat(table.rows()).isEqualTo(2);
+    }
+
+    @Test
+    void bomWithQuotedHeaderAndProjection() throws IOException {
+        Path file = write("ventas.csv", BOM, "\"name\",amount\r\nana,10\r\n");
+
+        ColumnarTable table = reader.read(file, Set.of("name"));
+
+        assertThat(table.column("name")).isNotNull();
+        assertThat(table.column("name").numericCount()).isZero();
+        assertThat(table.rows()).isEqualTo(1);
+    }
+
+    @Test
+    void fileWithoutBomIsReadAsIs() throws IOException {
+        Path file = write("ventas.csv", new byte[0], "name,amount\nana,10\n");
+
+        assertThat(reader.read(file).column("name")).isNotNull();
+    }
+
+    private Path write(String name, byte[] prefix, String content) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        bytes.write(prefix);
+        bytes.write(content.getBytes(StandardCharsets.UTF_8));
+        return Files.write(dir.resolve(name), bytes.toByteArray());
+    }
+}
@@ -0,0 +1,192 @@
+// ============================================================
+// routing/RoutingChatModelTest.java — Routing contra stubs locales
+// ============================================================
+// Servidores OpenAI-compatible en localhost: uno responde
+// siempre HTTP 500 y el otro responde bien (JSON o SSE según el
+// request). El proveedor caído tiene que quedar al final del
+// ranking después de su primer fallo, con y sin hedging; el
+// failover recorre la lista completa, también en streaming; y la
+// exploración le vuelve a mandar algo de tráfico.
+// ============================================================
+
+package com.agentes.rag.routing;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.function.FunctionCallbackContext;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoutingChatModelTest {
+
+    private static final String COMPLETION = """
+            {"id":"stub","object":"chat.completion","created":0,"model":"stub",
+             "choices":[{"index":0,"message":{"role":"assistant","content":"ok"},"finish_reason":"stop"}],
+             "usage":{"prompt_tokens":1,"completion_tokens":1,"total_tokens":2}}
+            """;
+
+    private static final String CHUNK = """
+            {"id":"stub","object":"chat.completion.chunk","created":0,"model":"stub",            "choices":[{"index":0,"delta":{"role":"assistant","content":"ok"},"finish_reason":"stop"}]}""";
+
+    private static final String ERROR = "{\"error\":{\"message\":\"caído\"}}";
+
+    private HttpServer dead;
+    private HttpServer alsoDead;
+    private HttpServer healthy;
+    private final AtomicInteger deadRequests = new AtomicInteger();
+    private final AtomicInteger alsoDeadRequests = new AtomicInteger();
+    private final AtomicInteger healthyRequests = new AtomicInteger();
+
+    @BeforeEach
+    void startStubs() throws IOException {
+        dead = stub(500, ERROR, deadRequests);
+        alsoDead = stub(500, ERROR, alsoDeadRequests);
+        healthy = stub(200, COMPLETION, healthyRequests);
+    }
+
+    @AfterEach
+    void stopStubs() {
+        dead.stop(0);
+        alsoDead.stop(0);
+        healthy.stop(0);
+    }
+
+    @Test
+    void alwaysFailingProviderIsDeprioritised() {
+        var deadStats = new ProviderStats(100);
+        try (var routing = new RoutingChatModel(List.of(
+                new RoutingChatModel.Provider("dead", chatModel(dead), deadStats),
+                new RoutingChatModel.Provider("healthy", chatModel(healthy), new ProviderStats(100))),
+                false, 50, 2000)) {
+
+            for (int i = 0; i < 10; i++) {
+                assertThat(routing.call(new Prompt("hola")).getResult().getOutput().getContent()).isEqualTo("ok");
+            }
+        }
+
+        // Solo el primer request lo prueba (ambos sin muestras); después va último
+        assertThat(deadRequests).hasValue(1);
+        assertThat(healthyRequests).hasValue(10);
+        assertThat(deadStats.score()).isEqualTo(Double.MAX_VALUE);
+    }
+
+    @Test
+    void hedgedCallsPreferTheHealthyProvider() {
+        try (var routing = new RoutingChatModel(List.of(
+                new RoutingChatModel.Provider("dead", chatModel(dead), new ProviderStats(100)),
+                new RoutingChatModel.Provider("healthy", chatModel(healthy), new ProviderStats(100))),
+                true, 5000, 5000)) {     // retardos altos: sin duplicados por lentitud
+
+            for (int i = 0; i < 10; i++) {
+                routing.call(new Prompt("hola"));
+            }
+        }
+
+        assertThat(deadRequests).hasValue(1);
+        assertThat(healthyRequests.get()).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    void fastHedgedFailureWalksTheWholeList() {
+        try (var routing = new RoutingChatModel(List.of(
+                new RoutingChatModel.Provider("dead", chatModel(dead), new ProviderStats(100)),
+                new RoutingChatModel.Provider("alsoDead", chatModel(alsoDead), new ProviderStats(100)),
+                new RoutingChatModel.Provider("healthy", chatModel(healthy), new ProviderStats(100))),
+                true, 5000, 5000)) {
+
+            // Sin muestras el orden es el de la lista: falla el primario y también el segundo
+            assertThat(routing.call(new Prompt("hola")).getResult().getOutput().getContent()).isEqualTo("ok");
+        }
+
+        assertThat(deadRequests).hasValue(1);
+        assertThat(alsoDeadRequests).hasValue(1);
+        assertThat(healthyRequests).hasValue(1);
+    }
+
+    @Test
+    void streamFailsOverBeforeTheFirstToken() {
+        try (var routing = new RoutingChatModel(List.of(
+                new RoutingChatModel.Provider("dead", chatModel(dead), new ProviderStats(100)),
+                new RoutingChatModel.Provider("alsoDead", chatModel(alsoDead), new ProviderStats(100)),
+                new RoutingChatModel.Provider("healthy", chatModel(healthy), new ProviderStats(100))),
+                false, 50, 2000)) {
+
+            List<String> tokens = routing.stream(new Prompt("hola"))
+                    .map(response -> response.getResult().getOutput().getContent())
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+            assertThat(tokens).containsExactly("ok");
+        }
+
+        assertThat(deadRequests).hasValue(1);
+        assertThat(alsoDeadRequests).hasValue(1);
+        assertThat(healthyRequests).hasValue(1);
+    }
+
+    @Test
+    void explorationKeepsMeasuringADemotedProvider() {
+        var deadStats = new ProviderStats(100);
+        try (var routing = new RoutingChatModel(List.of(
+                new RoutingChatModel.Provider("dead", chatModel(dead), deadStats),
+                new RoutingChatModel.Provider("healthy", chatModel(healthy), new ProviderStats(100))),
+                false, 50, 2000, 0.2)) {
+
+            for (int i = 0; i < 100; i++) {
+                assertThat(routing.call(new Prompt("hola")).getResult().getOutput().getContent()).isEqualTo("ok");
+            }
+        }
+
+        // ~20 exploraciones esperadas; sin exploración sería exactamente 1
+        assertThat(deadRequests.get()).isGreaterThan(1);
+        assertThat(healthyRequests).hasValue(100);
+    }
+
+    @Test
+    void scoreWithoutSamplesOrFailuresIsZero() {
+        var stats = new ProviderStats(10);
+        assertThat(stats.score()).isZero();
+
+        stats.recordFailure();
+        assertThat(stats.score()).isEqualTo(Double.MAX_VALUE);
+
+        stats.recordSuccess(5_000_000);
+        assertThat(stats.score()).isBetween(5.0, Double.MAX_VALUE / 2);
+    }
+
+    private static HttpServer stub(int status, String body, AtomicInteger requests) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            // Un request de streaming recibe la respuesta como Server-Sent Events
+            boolean sse = status == 200 && request.replace(" ", "").contains("\"stream\":true");
+            byte[] bytes = (sse ? "data: " + CHUNK + "\n\ndata: [DONE]\n\n" : body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", sse ? "text/event-stream" : "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private static OpenAiChatModel chatModel(HttpServer server) {
+        var api = new OpenAiApi("http://localhost:" + server.getAddress().getPort(), "test");
+        return new OpenAiChatModel(api, OpenAiChatOptions.builder().withModel("stub").build(),
+                new FunctionCallbackContext(), List.of(), RetryTemplate.builder().maxAttempts(1).build());
+    }
+}
@@ -0,0 +1,262 @@
+// ============================================================
+// store/CompactVectorStoreTest.java — Segmentos bajo concurrencia
+// ============================================================
+// Un hilo ingesta, otro borra y otros buscan mientras el hilo de
+// fusiones reescribe segmentos (segment-rows y max-segments muy
+// chicos para forzarlo). Ninguna fila viva se puede perder y
+// ninguna borrada puede volver a aparecer.
+// ============================================================
+
+package com.agentes.rag.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactVectorStoreTest {
+
+    private static final int DIMENSIONS = 32;
+    private static final int BASE = 2000;
+    private static final int BATCHES = 15;
+    private static final int BATCH = 100;
+
+    private final HashEmbeddingModel embeddingModel = new HashEmbeddingModel();
+    private final CompactVectorStore store = new CompactVectorStore(embeddingModel, 64, 4096, 1, 200, 3);
+    private final ExecutorService threads = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void close() {
+        threads.shutdownNow();
+        store.close();
+    }
+
+    @Test
+    @Timeout(120)
+    void concurrentAddDeleteMergeAndSearchKeepEveryLiveRow() throws Exception {
+        List<Document> base = new ArrayList<>();
+        for (int i = 0; i < BASE; i++) {
+            base.add(document("base-" + i));
+        }
+        store.add(base);
+
+        // Ids cuyo delete() ya volvió: ninguna búsqueda posterior los puede devolver
+        Set<String> deleted = ConcurrentHashMap.newKeySet();
+        Set<String> resurrected = ConcurrentHashMap.newKeySet();
+        Set<String> lost = ConcurrentHashMap.newKeySet();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        Future<?> writer = threads.submit(() -> {
+            for (int b = 0; b < BATCHES; b++) {
+                List<Document> batch = new ArrayList<>();
+                for (int i = 0; i < BATCH; i++) {
+                    batch.add(document("new-" + b + "-" + i));
+                }
+                store.add(batch);
+            }
+            return null;
+        });
+        Future<?> deleter = threads.submit(() -> {
+            for (int i = 0; i < BASE; i += 20) {
+                List<String> ids = new ArrayList<>();
+                for (int j = i; j < i + 20; j += 2) {
+                    ids.add("base-" + j);     // pares: se borran; impares: nunca
+                }
+                store.delete(ids);
+                deleted.addAll(ids);
+            }
+            return null;
+        });
+        List<Future<?>> searchers = new ArrayList<>();
+        for (int s = 0; s < 2; s++) {
+            searchers.add(threads.submit(() -> {
+                while (writing.get()) {
+                    Set<String> deletedBefore = Set.copyOf(deleted);
+                    int row = ThreadLocalRandom.current().nextInt(BASE);
+                    String id = "base-" + row;
+                    List<Document> hits = store.similaritySearch(SearchRequest.query(id).withTopK(5));
+                    hits.stream().map(Document::getId).filter(deletedBefore::contains).forEach(resurrected::add);
+                    if (row % 2 == 1 && (hits.isEmpty() || !hits.get(0).getId().equals(id))) {
+                        lost.add(id);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        writer.get(60, TimeUnit.SECONDS);
+        deleter.get(60, TimeUnit.SECONDS);
+        writing.set(false);
+        for (Future<?> searcher : searchers) {
+            searcher.get(60, TimeUnit.SECONDS);
+        }
+        store.awaitMerges();
+
+        assertThat(resurrected).isEmpty();
+        assertThat(lost).isEmpty();
+
+        CompactVectorStore.Stats stats = store.stats();
+        assertThat(stats.chunks()).isEqualTo(BASE / 2 + BATCHES * BATCH);
+        assertThat(stats.merges()).isPositive();
+        assertThat(stats.segments()).isLessThanOrEqualTo(3);
+
+        // Cada fila viva se encuentra con su propio texto; ninguna borrada
+        List<String> live = new ArrayList<>();
+        for (int i = 1; i < BASE; i += 2) live.add("base-" + i);
+        for (int b = 0; b < BATCHES; b++) {
+            for (int i = 0; i < BATCH; i++) live.add("new-" + b + "-" + i);
+        }
+        for (String id : live) {
+            List<Document> hits = store.similaritySearch(SearchRequest.query(id).withTopK(1));
+            assertThat(hits).extracting(Document::getId).containsExactly(id);
+            assertThat(hits.get(0).getContent()).isEqualTo(id);
+        }
+        for (int i = 0; i < BASE; i += 2) {
+            String id = "base-" + i;
+            assertThat(store.similaritySearch(SearchRequest.query(id).withTopK(5)))
+                    .extracting(Document::getId).doesNotContain(id);
+        }
+    }
+
+    @Test
+    void flushTrimsTheSlabAndReleasesTheOpenBlock() {
+        var texts = new CompressedTextStore(32 * 1024, 1);
+        byte[] hello = "hola mundo".getBytes(StandardCharsets.UTF_8);
+        long ref = texts.append(hello);
+        assertThat(texts.reservedBytes()).isEqualTo(32 * 1024);
+
+        texts.flush();
+        assertThat(texts.reservedBytes()).isEqualTo(texts.storedBytes());
+        assertThat(texts.read(ref, hello.length)).isEqualTo("hola mundo");
+
+        // Se puede seguir agregando después de un flush
+        byte[] again = "otra vez".getBytes(StandardCharsets.UTF_8);
+        long second = texts.append(again);
+        texts.flush();
+        assertThat(texts.read(second, again.length)).isEqualTo("otra vez");
+        assertThat(texts.read(ref, hello.length)).isEqualTo("hola mundo");
+        assertThat(texts.reservedBytes()).isLessThan(64 * 1024 + texts.storedBytes());
+    }
+
+    @Test
+    void failedBatchLeavesNothingFromTheAdd() {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            documents.add(document("doc-" + i));
+        }
+        // Lotes de 64 y segmentos de 200 filas: falla el lote 6, con 2 segmentos ya sellados
+        embeddingModel.failOn = "doc-400";
+
+        assertThatThrownBy(() -> store.add(documents)).isInstanceOf(IllegalStateException.class);
+        assertThat(store.stats().chunks()).isZero();
+        assertThat(store.stats().metadataMaps()).isZero();
+        assertThat(store.similaritySearch(SearchRequest.query("doc-1").withTopK(5))).isEmpty();
+
+        embeddingModel.failOn = null;
+        store.add(documents);
+        assertThat(store.stats().chunks()).isEqualTo(500);
+    }
+
+    @Test
+    void sealTrimsTheLastVectorBlockToItsRows() {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            documents.add(document("doc-" + i));
+        }
+        store.add(documents);
+
+        assertThat(store.stats().vectorBytes()).isEqualTo(5L * DIMENSIONS * Float.BYTES);
+        assertThat(store.similaritySearch(SearchRequest.query("doc-4").withTopK(1)))
+                .extracting(Document::getId).containsExactly("doc-4");
+    }
+
+    @Test
+    void mergesPruneMetadataOfDroppedRows() throws Exception {
+        List<Document> first = new ArrayList<>();
+        List<Document> second = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            first.add(new Document("a-" + i, "a-" + i, Map.of("source", "a.md")));
+            second.add(new Document("b-" + i, "b-" + i, Map.of("source", "b.md")));
+        }
+        store.add(first);
+        store.add(second);
+        assertThat(store.stats().metadataMaps()).isEqualTo(2);
+
+        store.delete(first.stream().map(Document::getId).toList());
+        store.awaitMerges();
+        assertThat(store.stats().metadataMaps()).isEqualTo(1);
+        assertThat(store.similaritySearch(SearchRequest.query("b-3").withTopK(1)).get(0).getMetadata())
+                .containsEntry("source", "b.md");
+
+        // Reingestar el archivo vuelve a crear su mapa
+        store.add(first);
+        assertThat(store.stats().metadataMaps()).isEqualTo(2);
+    }
+
+    /** Documento cuyo contenido es su id (la búsqueda por id lo encuentra con similitud 1) */
+    private static Document document(String id) {
+        return new Document(id, id, Map.of());
+    }
+
+    /** Vector pseudoaleatorio fijo por texto: textos distintos quedan casi ortogonales */
+    private static final class HashEmbeddingModel implements EmbeddingModel {
+
+        /** Contenido cuyo lote falla al embeberse (null = ninguno) */
+        volatile String failOn;
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                if (failOn != null && text.strip().endsWith(failOn)) {
+                    throw new IllegalStateException("Falla simulada del modelo de embeddings");
+                }
+                embeddings.add(new Embedding(vector(text), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vector(document.getContent());
+        }
+
+        @Override
+        public int dimensions() {
+            return DIMENSIONS;
+        }
+
+        private static float[] vector(String text) {
+            // El texto formateado para embeddings puede traer la metadata antes: vale la última línea
+            String content = text.substring(text.lastIndexOf('\n') + 1).strip();
+            var random = new SplittableRandom(content.hashCode());
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = (float) (random.nextDouble() * 2 - 1);
+            }
+            return vector;
+        }
+    }
+}